@@ -0,0 +1,19 @@
+package study.querydsl.projection;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * DTO 에 붙이면 {DTO 이름}Projection 클래스를 만든다.
+ * Projections.bean / fields 처럼 쓰지만 리플렉션 없이 setter 를 직접 호출한다.
+ *
+ * 생성자 인자는 필드 선언 순서를 따르고, 각 인자는 필드와 이름이 같은 path 이거나 as("필드") 별칭이어야 한다.
+ * 어긋나면 생성 시점에 IllegalArgumentException 을 던진다.
+ * DTO 는 기본 생성자와 필드마다 setter 가 있어야 한다. (@Data + @NoArgsConstructor)
+ * */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateProjection {
+}
@@ -0,0 +1,185 @@
+package study.querydsl.projection;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * GenerateProjection 이 붙은 DTO 마다 FactoryExpressionBase 구현을 만든다.
+ *
+ * setter 는 Lombok 이 같은 컴파일에서 만들기 때문에 여기서는 필드만 보고 이름을 정한다.
+ * 생성된 소스는 다음 라운드에 컴파일되므로 그때는 setter 가 있다.
+ *
+ * 같은 타입의 필드끼리 인자 순서가 바뀌어도 컴파일되므로, 생성자에서 인자마다 이름을 확인한다.
+ * path 는 마지막 이름이, as(...) 는 별칭이 필드 이름과 같아야 한다.
+ * */
+@SupportedAnnotationTypes("study.querydsl.projection.GenerateProjection")
+public class ProjectionProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@GenerateProjection 은 클래스에만 붙일 수 있습니다.", element);
+                    continue;
+                }
+                try {
+                    generate((TypeElement) element);
+                } catch (IOException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Projection 생성 실패: " + e.getMessage(), element);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement dto) throws IOException {
+        String packageName = ((PackageElement) processingEnv.getElementUtils().getPackageOf(dto)).getQualifiedName().toString();
+        String dtoName = dto.getSimpleName().toString();
+        String projectionName = dtoName + "Projection";
+
+        List<Field> fields = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(dto.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            fields.add(new Field(field.getSimpleName().toString(), field.asType()));
+        }
+
+        String qualifiedName = packageName.isEmpty() ? projectionName : packageName + "." + projectionName;
+        // compileQuerydsl 이 이미 만들어 소스 경로에 올라와 있으면 다시 만들지 않는다.
+        if (processingEnv.getElementUtils().getTypeElement(qualifiedName) != null) {
+            return;
+        }
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, dto).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("import com.querydsl.core.types.Expression;");
+            out.println("import com.querydsl.core.types.FactoryExpressionBase;");
+            out.println("import com.querydsl.core.types.Operation;");
+            out.println("import com.querydsl.core.types.Ops;");
+            out.println("import com.querydsl.core.types.Path;");
+            out.println("import com.querydsl.core.types.Visitor;");
+            out.println();
+            out.println("import java.util.Arrays;");
+            out.println("import java.util.Collections;");
+            out.println("import java.util.List;");
+            out.println();
+            out.println("/**");
+            out.println(" * " + dtoName + " 를 setter 직접 호출로 채운다. (ProjectionProcessor 가 생성)");
+            out.println(" * */");
+            out.println("public final class " + projectionName + " extends FactoryExpressionBase<" + dtoName + "> {");
+            out.println();
+            out.println("    private static final long serialVersionUID = 1L;");
+            out.println();
+            out.println("    private final List<Expression<?>> args;");
+            out.println();
+
+            StringBuilder parameters = new StringBuilder();
+            StringBuilder arguments = new StringBuilder();
+            for (int i = 0; i < fields.size(); i++) {
+                Field field = fields.get(i);
+                if (i > 0) {
+                    parameters.append(", ");
+                    arguments.append(", ");
+                }
+                parameters.append("Expression<? extends ").append(field.boxedType()).append("> ").append(field.name);
+                arguments.append("named(").append(field.name).append(", \"").append(field.name).append("\")");
+            }
+            out.println("    public " + projectionName + "(" + parameters + ") {");
+            out.println("        super(" + dtoName + ".class);");
+            out.println("        this.args = Collections.unmodifiableList(Arrays.<Expression<?>>asList(" + arguments + "));");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public List<Expression<?>> getArgs() {");
+            out.println("        return args;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + dtoName + " newInstance(Object... values) {");
+            out.println("        " + dtoName + " dto = new " + dtoName + "();");
+            for (int i = 0; i < fields.size(); i++) {
+                Field field = fields.get(i);
+                String value = "(" + field.boxedType() + ") values[" + i + "]";
+                if (field.primitive) {
+                    // Projections.bean 과 같이 null 이면 기본값을 둔다.
+                    out.println("        if (values[" + i + "] != null) {");
+                    out.println("            dto." + field.setter() + "(" + value + ");");
+                    out.println("        }");
+                } else {
+                    out.println("        dto." + field.setter() + "(" + value + ");");
+                }
+            }
+            out.println("        return dto;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public <R, C> R accept(Visitor<R, C> v, C context) {");
+            out.println("        return v.visit(this, context);");
+            out.println("    }");
+            out.println();
+            out.println("    // 인자 순서가 필드 선언 순서와 어긋나면 값이 다른 필드에 들어가므로 이름으로 확인한다.");
+            out.println("    private static Expression<?> named(Expression<?> expression, String field) {");
+            out.println("        String name = null;");
+            out.println("        if (expression instanceof Path) {");
+            out.println("            name = ((Path<?>) expression).getMetadata().getName();");
+            out.println("        } else if (expression instanceof Operation && ((Operation<?>) expression).getOperator() == Ops.ALIAS) {");
+            out.println("            name = ((Path<?>) ((Operation<?>) expression).getArg(1)).getMetadata().getName();");
+            out.println("        }");
+            out.println("        if (!field.equals(name)) {");
+            out.println("            throw new IllegalArgumentException(\"" + dtoName + ".\" + field + \" 에는 이름이 같은 path 나 as(\\\"\" + field + \"\\\") 를 넘겨야 합니다: \" + expression);");
+            out.println("        }");
+            out.println("        return expression;");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private class Field {
+        private final String name;
+        private final TypeMirror type;
+        private final boolean primitive;
+
+        Field(String name, TypeMirror type) {
+            this.name = name;
+            this.type = type;
+            this.primitive = type.getKind().isPrimitive();
+        }
+
+        String boxedType() {
+            if (primitive) {
+                return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+            }
+            return processingEnv.getTypeUtils().erasure(type).toString();
+        }
+
+        String setter() {
+            return "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.QuerydslApplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 벤치마크마다 인메모리 H2 를 띄우고 members 건수만큼 데이터를 채운다.
+ * 10M 은 힙이 넉넉해야 하므로 build.gradle 의 jmh.jvmArgs 를 확인할 것.
+ * */
+@State(Scope.Benchmark)
+public class MemberDataset {
+
+    public static final int TEAM_COUNT = 100;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int members;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--spring.profiles.active=bench",
+                "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--decorator.datasource.enabled=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                // 매 호출이 쿼리를 실행하도록 결과 캐시를 끈다.
+                "--member.result-cache.maximum-rows=0"));
+        args.addAll(Arrays.asList(extraArgs()));
+
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    // 벤치마크별로 설정을 바꿔 띄울 때 재정의한다.
+    protected String[] extraArgs() {
+        return new String[0];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public JPAQueryFactory queryFactory() {
+        return context.getBean(JPAQueryFactory.class);
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        List<Object[]> teams = new ArrayList<>();
+        for (int i = 0; i < TEAM_COUNT; i++) {
+            teams.add(new Object[]{(long) i + 1, "team" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into team (id, name) values (?, ?)", teams);
+
+        // 실행마다 같은 데이터가 나오도록 시드를 고정한다.
+        SplittableRandom random = new SplittableRandom(42);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < members; i++) {
+            long id = TEAM_COUNT + i + 1L;
+            batch.add(new Object[]{id, "member" + i, random.nextInt(100), (long) random.nextInt(TEAM_COUNT) + 1});
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate("insert into member (id, username, age, team_id) values (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into member (id, username, age, team_id) values (?, ?, ?, ?)", batch);
+        }
+    }
+}
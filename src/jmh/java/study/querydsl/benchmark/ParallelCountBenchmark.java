@@ -0,0 +1,64 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시 요청 상황에서 pagingComplex 의 count 를 순차 / 병렬로 실행했을 때의 지연 시간 비교.
+ * count 캐시를 매번 비워서 항상 count 쿼리가 나가도록 한다.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class ParallelCountBenchmark {
+
+    public static class Dataset extends MemberDataset {
+
+        @Param({"false", "true"})
+        public boolean parallelCount;
+
+        @Override
+        protected String[] extraArgs() {
+            return new String[]{"--member.paging.parallel-count=" + parallelCount};
+        }
+    }
+
+    private MemberRepository memberRepository;
+    private MemberCountCache memberCountCache;
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp(Dataset dataset) {
+        memberRepository = dataset.getBean(MemberRepository.class);
+        memberCountCache = dataset.getBean(MemberCountCache.class);
+
+        condition = new MemberSearchCondition();
+        condition.setGoe(20);
+        condition.setLoe(60);
+        pageRequest = PageRequest.of(5, 100);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> pagingComplex() {
+        memberCountCache.invalidateAll();
+        return memberRepository.pagingComplex(condition, pageRequest);
+    }
+}
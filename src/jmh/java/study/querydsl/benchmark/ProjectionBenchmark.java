@@ -0,0 +1,118 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.QMemberTeamDto;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberDtoProjection;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.UserDto;
+import study.querydsl.dto.UserDtoProjection;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.QMember.member;
+import static study.querydsl.QTeam.team;
+
+/**
+ * 테스트에서 사용하는 프로젝션 방식별로 같은 범위를 읽어 비교한다.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProjectionBenchmark {
+
+    @Param({"100"})
+    public int rows;
+
+    private JPAQueryFactory queryFactory;
+
+    @Setup(Level.Trial)
+    public void setUp(MemberDataset dataset) {
+        queryFactory = dataset.queryFactory();
+    }
+
+    @Benchmark
+    public List<MemberDto> bean() {
+        return queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> fields() {
+        return queryFactory
+                .select(Projections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<UserDto> aliasedFields() {
+        return queryFactory
+                .select(Projections.fields(UserDto.class, member.username.as("title"), member.age.as("order")))
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> generated() {
+        return queryFactory
+                .select(new MemberDtoProjection(member.username, member.age))
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<UserDto> aliasedGenerated() {
+        return queryFactory
+                .select(new UserDtoProjection(member.username.as("title"), member.age.as("order")))
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> constructor() {
+        return queryFactory
+                .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> queryProjection() {
+        return queryFactory
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<Tuple> tuple() {
+        return queryFactory
+                .select(member.username, member.age)
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+}
@@ -0,0 +1,91 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberDtoProjection;
+import study.querydsl.dto.UserDto;
+import study.querydsl.dto.UserDtoProjection;
+
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.QMember.member;
+
+/**
+ * DB 를 빼고 행 -> DTO 변환만 잰다. ROWS 행을 한 번에 변환하므로 결과는 행당 ns 이고,
+ * -prof gc 의 gc.alloc.rate.norm 은 행당 할당 바이트다.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProjectionMapperBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private Object[][] rows;
+
+    private FactoryExpression<MemberDto> bean;
+    private FactoryExpression<MemberDto> fields;
+    private FactoryExpression<MemberDto> generated;
+    private FactoryExpression<UserDto> aliasedFields;
+    private FactoryExpression<UserDto> aliasedGenerated;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rows = new Object[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new Object[]{"member" + i, i % 80};
+        }
+        bean = Projections.bean(MemberDto.class, member.username, member.age);
+        fields = Projections.fields(MemberDto.class, member.username, member.age);
+        generated = new MemberDtoProjection(member.username, member.age);
+        aliasedFields = Projections.fields(UserDto.class, member.username.as("title"), member.age.as("order"));
+        aliasedGenerated = new UserDtoProjection(member.username.as("title"), member.age.as("order"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void bean(Blackhole blackhole) {
+        map(bean, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void fields(Blackhole blackhole) {
+        map(fields, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void generated(Blackhole blackhole) {
+        map(generated, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void aliasedFields(Blackhole blackhole) {
+        map(aliasedFields, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void aliasedGenerated(Blackhole blackhole) {
+        map(aliasedGenerated, blackhole);
+    }
+
+    private void map(FactoryExpression<?> projection, Blackhole blackhole) {
+        for (Object[] row : rows) {
+            blackhole.consume(projection.newInstance(row));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.QMemberTeamDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberSearchQueryTemplates;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.QMember.member;
+import static study.querydsl.QTeam.team;
+import static study.querydsl.repository.MemberSearchPredicates.*;
+
+/**
+ * 요청마다 querydsl 로 쿼리를 다시 만드는 경우와 모양별 JPQL 템플릿을 재사용하는 경우를 비교한다.
+ * 두 경우의 차이가 요청당 절약되는 CPU 시간이다.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryTemplateBenchmark {
+
+    private JPAQueryFactory queryFactory;
+    private MemberSearchQueryTemplates templates;
+    private MemberSearchCondition condition;
+
+    @Setup(Level.Trial)
+    public void setUp(MemberDataset dataset) {
+        queryFactory = dataset.queryFactory();
+        templates = dataset.getBean(MemberSearchQueryTemplates.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team7");
+        condition.setGoe(20);
+        condition.setLoe(40);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> rebuilt() {
+        return queryFactory
+                .select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, member.team.id.as("teamId"), member.team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        teamNameEq(condition.getTeamName()),
+                        usernameEq(condition.getUsername()),
+                        ageGoe(condition.getGoe()),
+                        ageLoe(condition.getLoe())
+                )
+                .limit(10)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> templated() {
+        return templates.fetch(condition, 0, 10);
+    }
+}
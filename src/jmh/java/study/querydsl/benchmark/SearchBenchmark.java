@@ -0,0 +1,73 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberJPARepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동적 쿼리 4가지 경로(/v1 ~ /v4)를 같은 조건으로 비교한다.
+ * pagingComplex 는 count 캐시를 매번 비워서 항상 count 쿼리가 나가도록 한다.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SearchBenchmark {
+
+    private MemberJPARepository memberJPARepository;
+    private MemberRepository memberRepository;
+    private MemberCountCache memberCountCache;
+
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp(MemberDataset dataset) {
+        memberJPARepository = dataset.getBean(MemberJPARepository.class);
+        memberRepository = dataset.getBean(MemberRepository.class);
+        memberCountCache = dataset.getBean(MemberCountCache.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team7");
+        condition.setGoe(20);
+        condition.setLoe(40);
+        condition.setSize(100);
+
+        pageRequest = PageRequest.of(10, 100);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> findBySearchCondition() {
+        return memberJPARepository.findBySearchCondition(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        return memberRepository.search(condition);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> pagingSimple() {
+        return memberRepository.pagingSimple(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> pagingComplex() {
+        memberCountCache.invalidateAll();
+        return memberRepository.pagingComplex(condition, pageRequest);
+    }
+}
@@ -0,0 +1,51 @@
+package study.querydsl.load;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 부하 테스트 대상 앱. 인메모리 H2 에 MemberDataLoader 로 데이터를 채운 뒤 임의 포트로 띄운다.
+ * JDBC 와 R2DBC 가 같은 인메모리 DB 를 바라보도록 이름을 맞춘다.
+ * */
+final class EmbeddedApp implements AutoCloseable {
+
+    // 팀 이름은 team0 ~ team99
+    static final int TEAMS = 100;
+
+    private final ConfigurableApplicationContext context;
+    private final String baseUrl;
+
+    private EmbeddedApp(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    static EmbeddedApp start(long members, String... extraArgs) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--server.port=0",
+                "--spring.profiles.active=load",
+                "--spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///load",
+                "--decorator.datasource.enabled=false",
+                "--member.loader.enabled=true",
+                "--member.loader.members=" + members,
+                "--member.loader.teams=" + TEAMS,
+                "--logging.level.org.hibernate.SQL=warn"));
+        args.addAll(Arrays.asList(extraArgs));
+        return new EmbeddedApp(SpringApplication.run(QuerydslApplication.class, args.toArray(new String[0])));
+    }
+
+    String url(String pathAndQuery) {
+        return baseUrl + pathAndQuery;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
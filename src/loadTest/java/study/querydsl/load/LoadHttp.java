@@ -0,0 +1,50 @@
+package study.querydsl.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * 부하 클라이언트가 쓰는 GET. 응답 코드가 200 이면 성공이다.
+ * */
+final class LoadHttp {
+
+    private LoadHttp() {
+    }
+
+    // 기본값(5)이면 keep-alive 연결이 재사용되지 않아 소켓 생성 비용이 지연에 섞인다.
+    static void keepAlive(int connections) {
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+    }
+
+    static boolean get(String url) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(10_000);
+            connection.setReadTimeout(60_000);
+            int status = connection.getResponseCode();
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                drain(body);
+            }
+            return status == 200;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return false;
+        }
+    }
+
+    // 본문을 끝까지 읽어야 keep-alive 연결이 풀로 돌아간다.
+    private static void drain(InputStream body) throws IOException {
+        if (body == null) {
+            return;
+        }
+        byte[] buffer = new byte[8192];
+        while (body.read(buffer) != -1) {
+            // discard
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package study.querydsl.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import study.querydsl.listener.MemberDataLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * /v1 ~ /v4/members 에 열린 모델(open model) 부하를 건다.
+ *
+ * 요청은 정해진 도착률(load.rate)로 예정 시각이 먼저 정해지고, 응답 시간은 실제 전송 시각이 아니라 예정 시각부터 잰다.
+ * 서버가 느려져 클라이언트 스레드가 밀려도 밀린 만큼이 지연에 그대로 잡히므로 coordinated omission 이 생기지 않는다.
+ * (service 는 실제 전송부터 잰 값. 둘의 차이가 대기열에서 기다린 시간이다)
+ *
+ * 검색 조건은 EmbeddedApp 데이터와 같은 분포로 만든다.
+ * - teamName : load.team-ratio 확률로 team0 ~ team99 를 Zipf 분포로 고른다. (큰 팀이 자주 걸린다)
+ * - username : load.username-ratio 확률로 member0 ~ member(N-1) 을 균등하게 고른다.
+ * - goe / loe: load.age-ratio 확률로 18 ~ 60 에서 폭 5 ~ 20 인 범위를 고른다.
+ * - page     : v3 / v4 는 0 ~ load.max-page 를 균등하게 고른다.
+ *
+ * 결과는 표로 출력하고 load.report-dir 에 member-load.json 과 엔드포인트별 .hgrm 을 쓴다.
+ * load.baseline 이 있으면 그 json 과 비교해 회귀가 있으면 종료 코드 1 로 끝난다. (기준이 될 실행의 member-load.json 을 복사해 둔다)
+ * load.target 을 주면 EmbeddedApp 을 띄우지 않고 그 주소로 보낸다.
+ *
+ * -Dload.rate=500 -Dload.concurrency=256 -Dload.mix=v1:1,v2:1,v3:1,v4:1 -Dload.members=100000
+ * -Dload.warmup=10s -Dload.duration=30s -Dload.arrival=poisson -Dload.baseline=member-load-baseline.json
+ * */
+public class MemberLoadGenerator {
+
+    private static final String[] PATHS = {"/v1/members", "/v2/members", "/v3/members", "/v4/members"};
+
+    public static void main(String[] args) throws Exception {
+        double rate = Double.parseDouble(System.getProperty("load.rate", "500"));
+        int concurrency = Integer.getInteger("load.concurrency", 256);
+        long members = Long.getLong("load.members", 100_000L);
+        Duration warmup = Duration.parse("PT" + System.getProperty("load.warmup", "10s"));
+        Duration duration = Duration.parse("PT" + System.getProperty("load.duration", "30s"));
+        String target = System.getProperty("load.target");
+        File reportDir = new File(System.getProperty("load.report-dir", "build/reports/load"));
+        String baseline = System.getProperty("load.baseline");
+        double tolerance = Double.parseDouble(System.getProperty("load.tolerance", "0.2"));
+
+        Workload workload = new Workload(
+                mix(System.getProperty("load.mix", "v1:1,v2:1,v3:1,v4:1")),
+                members,
+                Double.parseDouble(System.getProperty("load.team-ratio", "0.7")),
+                Double.parseDouble(System.getProperty("load.username-ratio", "0.05")),
+                Double.parseDouble(System.getProperty("load.age-ratio", "0.5")),
+                Double.parseDouble(System.getProperty("load.zipf-exponent", "1.1")),
+                Integer.getInteger("load.max-page", 10),
+                new Random(Long.getLong("load.seed", 42L)));
+        boolean poisson = "poisson".equals(System.getProperty("load.arrival", "poisson"));
+
+        LoadHttp.keepAlive(concurrency);
+
+        Report report;
+        if (target != null) {
+            report = run(path -> target + path, workload, rate, poisson, concurrency, warmup, duration);
+        } else {
+            try (EmbeddedApp app = EmbeddedApp.start(members)) {
+                report = run(app::url, workload, rate, poisson, concurrency, warmup, duration);
+            }
+        }
+
+        report.print(System.out);
+        report.write(reportDir);
+
+        if (baseline != null && !report.compare(new File(baseline), tolerance, System.out)) {
+            System.exit(1);
+        }
+    }
+
+    static Report run(UrlResolver resolver, Workload workload, double rate, boolean poisson, int concurrency,
+                      Duration warmup, Duration duration) throws InterruptedException {
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        for (String path : PATHS) {
+            stats.put(path, new EndpointStats());
+        }
+
+        AtomicInteger threadIds = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "load-client-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+        double meanGapNanos = 1_000_000_000.0 / rate;
+        Random arrivals = new Random(workload.random.nextLong());
+
+        // 예정 시각은 앞 요청의 응답과 관계없이 정해진다.
+        double intended = start;
+        while (intended < deadline) {
+            long intendedStart = (long) intended;
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            String path = workload.nextPath();
+            String url = resolver.resolve(path + workload.nextQuery(path));
+            EndpointStats endpoint = stats.get(path);
+            boolean measured = intendedStart >= measureFrom;
+            executor.execute(() -> {
+                long sent = System.nanoTime();
+                boolean ok = LoadHttp.get(url);
+                long end = System.nanoTime();
+                if (measured) {
+                    endpoint.record(ok, end - intendedStart, end - sent);
+                }
+            });
+
+            intended += poisson ? -Math.log(1 - arrivals.nextDouble()) * meanGapNanos : meanGapNanos;
+        }
+
+        executor.shutdown();
+        boolean drained = executor.awaitTermination(2, TimeUnit.MINUTES);
+        if (!drained) {
+            executor.shutdownNow();
+        }
+        return new Report(rate, concurrency, duration, workload.mixDescription(), stats, drained);
+    }
+
+    // "v1:3,v4:1" -> 누적 가중치
+    static double[] mix(String mix) {
+        double[] weights = new double[PATHS.length];
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            int index = Integer.parseInt(pair[0].trim().substring(1)) - 1;
+            if (index < 0 || index >= PATHS.length) {
+                throw new IllegalArgumentException("unknown endpoint in load.mix: " + part);
+            }
+            weights[index] = Double.parseDouble(pair[1].trim());
+        }
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            weights[i] = sum;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("load.mix has no positive weight: " + mix);
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] /= sum;
+        }
+        return weights;
+    }
+
+    interface UrlResolver {
+        String resolve(String pathAndQuery);
+    }
+
+    /**
+     * 엔드포인트와 검색 조건을 고른다. 예약 스레드 하나에서만 쓴다.
+     * */
+    static final class Workload {
+        private final double[] cumulativeMix;
+        private final long members;
+        private final double teamRatio;
+        private final double usernameRatio;
+        private final double ageRatio;
+        private final MemberDataLoader.ZipfSampler teams;
+        private final int maxPage;
+        private final Random random;
+
+        Workload(double[] cumulativeMix, long members, double teamRatio, double usernameRatio, double ageRatio,
+                 double zipfExponent, int maxPage, Random random) {
+            this.cumulativeMix = cumulativeMix;
+            this.members = members;
+            this.teamRatio = teamRatio;
+            this.usernameRatio = usernameRatio;
+            this.ageRatio = ageRatio;
+            this.teams = new MemberDataLoader.ZipfSampler(EmbeddedApp.TEAMS, zipfExponent);
+            this.maxPage = maxPage;
+            this.random = random;
+        }
+
+        String nextPath() {
+            double sample = random.nextDouble();
+            for (int i = 0; i < cumulativeMix.length; i++) {
+                if (sample < cumulativeMix[i]) {
+                    return PATHS[i];
+                }
+            }
+            return PATHS[PATHS.length - 1];
+        }
+
+        String nextQuery(String path) {
+            StringBuilder query = new StringBuilder("?size=20");
+            if (random.nextDouble() < teamRatio) {
+                query.append("&teamName=team").append(teams.sample(random));
+            }
+            if (random.nextDouble() < usernameRatio) {
+                query.append("&username=member").append((long) (random.nextDouble() * members));
+            }
+            if (random.nextDouble() < ageRatio) {
+                int goe = 18 + random.nextInt(43);
+                query.append("&goe=").append(goe).append("&loe=").append(goe + 5 + random.nextInt(16));
+            }
+            if (path.startsWith("/v3") || path.startsWith("/v4")) {
+                query.append("&page=").append(random.nextInt(maxPage + 1));
+            }
+            return query.toString();
+        }
+
+        String mixDescription() {
+            StringBuilder description = new StringBuilder();
+            double previous = 0;
+            for (int i = 0; i < PATHS.length; i++) {
+                if (description.length() > 0) {
+                    description.append(',');
+                }
+                description.append('v').append(i + 1).append(':').append(String.format("%.2f", cumulativeMix[i] - previous));
+                previous = cumulativeMix[i];
+            }
+            return description.toString();
+        }
+    }
+
+    static final class EndpointStats {
+        private final Recorder response = new Recorder(3);
+        private final Recorder service = new Recorder(3);
+        private final LongAdder errors = new LongAdder();
+
+        void record(boolean ok, long responseNanos, long serviceNanos) {
+            if (ok) {
+                response.recordValue(responseNanos);
+                service.recordValue(serviceNanos);
+            } else {
+                errors.increment();
+            }
+        }
+    }
+
+    static final class Report {
+        private final double rate;
+        private final int concurrency;
+        private final Duration duration;
+        private final String mix;
+        private final boolean drained;
+        private final Map<String, Histogram> responses = new LinkedHashMap<>();
+        private final Map<String, Histogram> services = new LinkedHashMap<>();
+        private final Map<String, Long> errors = new LinkedHashMap<>();
+
+        Report(double rate, int concurrency, Duration duration, String mix, Map<String, EndpointStats> stats, boolean drained) {
+            this.rate = rate;
+            this.concurrency = concurrency;
+            this.duration = duration;
+            this.mix = mix;
+            this.drained = drained;
+            stats.forEach((path, endpoint) -> {
+                responses.put(path, endpoint.response.getIntervalHistogram());
+                services.put(path, endpoint.service.getIntervalHistogram());
+                errors.put(path, endpoint.errors.sum());
+            });
+        }
+
+        void print(PrintStream out) {
+            out.printf("rate %.1f req/s, concurrency %d, duration %ds, mix %s%s%n",
+                    rate, concurrency, duration.getSeconds(), mix, drained ? "" : " (미완료 요청 있음)");
+            out.printf("%-14s %9s %10s %9s %9s %9s %9s %11s %8s%n",
+                    "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "svc p99 ms", "errors");
+            for (String path : responses.keySet()) {
+                ObjectNode row = summary(path);
+                out.printf("%-14s %9d %10.1f %9.2f %9.2f %9.2f %9.2f %11.2f %7.2f%%%n",
+                        path,
+                        row.get("requests").asLong(),
+                        row.get("throughput").asDouble(),
+                        row.get("p50Ms").asDouble(),
+                        row.get("p99Ms").asDouble(),
+                        row.get("p999Ms").asDouble(),
+                        row.get("maxMs").asDouble(),
+                        row.get("serviceP99Ms").asDouble(),
+                        row.get("errorRate").asDouble() * 100);
+            }
+        }
+
+        void write(File directory) throws IOException {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("cannot create " + directory);
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                    .writeValue(new File(directory, "member-load.json"), toJson());
+
+            // HdrHistogram plotter 로 여러 실행을 겹쳐 볼 수 있다. (단위 ms)
+            for (Map.Entry<String, Histogram> entry : responses.entrySet()) {
+                String name = entry.getKey().substring(1, 3);
+                try (PrintStream out = new PrintStream(new File(directory, "member-load-" + name + ".hgrm"), "UTF-8")) {
+                    entry.getValue().outputPercentileDistribution(out, 1_000_000.0);
+                }
+            }
+        }
+
+        /**
+         * baseline 보다 p99 / p99.9 가 tolerance 이상 느리거나, 처리량이 tolerance 이상 적거나,
+         * 에러율이 0.1%p 이상 높으면 회귀로 본다. baseline 에 없는 엔드포인트는 건너뛴다.
+         * */
+        boolean compare(File baselineFile, double tolerance, PrintStream out) throws IOException {
+            JsonNode baseline = new ObjectMapper().readTree(baselineFile).get("endpoints");
+            boolean passed = true;
+            for (String path : responses.keySet()) {
+                JsonNode base = baseline.get(path);
+                if (base == null) {
+                    continue;
+                }
+                ObjectNode current = summary(path);
+                List<String> regressions = new ArrayList<>();
+                for (String latency : new String[]{"p99Ms", "p999Ms"}) {
+                    if (current.get(latency).asDouble() > base.get(latency).asDouble() * (1 + tolerance)) {
+                        regressions.add(String.format("%s %.2f -> %.2f", latency, base.get(latency).asDouble(), current.get(latency).asDouble()));
+                    }
+                }
+                if (current.get("throughput").asDouble() < base.get("throughput").asDouble() * (1 - tolerance)) {
+                    regressions.add(String.format("throughput %.1f -> %.1f", base.get("throughput").asDouble(), current.get("throughput").asDouble()));
+                }
+                if (current.get("errorRate").asDouble() > base.get("errorRate").asDouble() + 0.001) {
+                    regressions.add(String.format("errorRate %.4f -> %.4f", base.get("errorRate").asDouble(), current.get("errorRate").asDouble()));
+                }
+
+                out.printf("%-14s %s%n", path, regressions.isEmpty() ? "OK" : "REGRESSION " + String.join(", ", regressions));
+                passed &= regressions.isEmpty();
+            }
+            return passed;
+        }
+
+        private ObjectNode toJson() {
+            ObjectMapper mapper = new ObjectMapper();
+            ObjectNode root = mapper.createObjectNode();
+            root.put("rate", rate);
+            root.put("concurrency", concurrency);
+            root.put("durationSeconds", duration.getSeconds());
+            root.put("mix", mix);
+            ObjectNode endpoints = root.putObject("endpoints");
+            for (String path : responses.keySet()) {
+                endpoints.set(path, summary(path));
+            }
+            return root;
+        }
+
+        private ObjectNode summary(String path) {
+            Histogram response = responses.get(path);
+            long requests = response.getTotalCount() + errors.get(path);
+            ObjectNode row = new ObjectMapper().createObjectNode();
+            row.put("requests", requests);
+            row.put("throughput", response.getTotalCount() / (double) duration.getSeconds());
+            row.put("errorRate", requests > 0 ? errors.get(path) / (double) requests : 0);
+            row.put("p50Ms", millis(response.getValueAtPercentile(50)));
+            row.put("p99Ms", millis(response.getValueAtPercentile(99)));
+            row.put("p999Ms", millis(response.getValueAtPercentile(99.9)));
+            row.put("maxMs", millis(response.getMaxValue()));
+            row.put("serviceP99Ms", millis(services.get(path).getValueAtPercentile(99)));
+            return row;
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package study.querydsl.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 같은 검색을 blocking(JDBC) 과 reactive(R2DBC) 엔드포인트로 나눠 닫힌 모델 부하를 건다.
+ * 클라이언트 N 개가 응답을 받는 즉시 다음 요청을 보낸다.
+ *
+ * -Dload.clients=5000 -Dload.members=100000 -Dload.warmup=10s -Dload.duration=30s
+ * */
+public class ReactiveComparisonLoadTest {
+
+    private static final String[][] ENDPOINTS = {
+            {"/v2/members", "/v2/members/reactive"},
+            {"/v4/members", "/v4/members/reactive"},
+    };
+    private static final String QUERY = "?teamName=team1&goe=30&loe=40&size=20&page=1";
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("load.clients", 5000);
+        long members = Long.getLong("load.members", 100_000L);
+        Duration warmup = Duration.parse("PT" + System.getProperty("load.warmup", "10s"));
+        Duration duration = Duration.parse("PT" + System.getProperty("load.duration", "30s"));
+
+        LoadHttp.keepAlive(clients);
+
+        try (EmbeddedApp app = EmbeddedApp.start(members)) {
+            System.out.printf("%-24s %8s %10s %9s %9s %9s %9s %7s %8s %9s%n",
+                    "endpoint", "clients", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors", "threads", "heap MB");
+            for (String[] pair : ENDPOINTS) {
+                for (String endpoint : pair) {
+                    Result result = run(app.url(endpoint + QUERY), clients, warmup, duration);
+                    result.print(endpoint, clients);
+                }
+            }
+        }
+    }
+
+    static Result run(String url, int clients, Duration warmup, Duration duration) throws InterruptedException {
+        Recorder recorder = new Recorder(3);
+        LongAdder errors = new LongAdder();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseThreads = threads.getThreadCount();
+
+        CountDownLatch done = new CountDownLatch(clients);
+        List<Thread> workers = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        boolean ok = LoadHttp.get(url);
+                        long end = System.nanoTime();
+                        if (start >= measureFrom) {
+                            if (ok) {
+                                recorder.recordValue(end - start);
+                            } else {
+                                errors.increment();
+                            }
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        workers.forEach(Thread::start);
+
+        // 클라이언트 스레드를 빼고 서버 쪽에서 늘어난 스레드와 힙 사용량의 최대치를 본다.
+        long peakThreads = 0;
+        long peakHeap = 0;
+        recorder.reset();
+        while (!done.await(100, TimeUnit.MILLISECONDS)) {
+            if (System.nanoTime() >= measureFrom) {
+                peakThreads = Math.max(peakThreads, threads.getThreadCount() - baseThreads - done.getCount());
+                peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+        return new Result(recorder.getIntervalHistogram(), errors.sum(), duration, peakThreads, peakHeap);
+    }
+
+    static final class Result {
+        private final Histogram histogram;
+        private final long errors;
+        private final Duration duration;
+        private final long peakThreads;
+        private final long peakHeap;
+
+        Result(Histogram histogram, long errors, Duration duration, long peakThreads, long peakHeap) {
+            this.histogram = histogram;
+            this.errors = errors;
+            this.duration = duration;
+            this.peakThreads = peakThreads;
+            this.peakHeap = peakHeap;
+        }
+
+        void print(String endpoint, int clients) {
+            System.out.printf("%-24s %8d %10.1f %9.2f %9.2f %9.2f %9.2f %7d %8d %9d%n",
+                    endpoint,
+                    clients,
+                    histogram.getTotalCount() / (double) duration.getSeconds(),
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()),
+                    errors,
+                    peakThreads,
+                    peakHeap / (1024 * 1024));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package study.querydsl.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class CountExecutorConfig {
+
+    /**
+     * pagingComplex 의 count 쿼리를 병렬로 실행하는 풀.
+     * 큐가 가득 차면 거절하고 호출한 쪽에서 직접 count 한다.
+     * executor.* {name=member.count} 지표로 풀 사용량을 볼 수 있다.
+     * */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService memberCountExecutor(@Value("${member.paging.count-pool-size:4}") int poolSize,
+                                               @Value("${member.paging.count-queue-capacity:64}") int queueCapacity,
+                                               MeterRegistry meterRegistry) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("member-count-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "member.count");
+    }
+}
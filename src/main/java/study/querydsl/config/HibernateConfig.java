@@ -0,0 +1,17 @@
+package study.querydsl.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.listener.SqlStatementInspector;
+
+@Configuration
+public class HibernateConfig {
+
+    // 클래스 이름 대신 빈을 넘겨야 스프링이 주입한 의존성을 사용할 수 있다.
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(SqlStatementInspector sqlStatementInspector) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlStatementInspector);
+    }
+}
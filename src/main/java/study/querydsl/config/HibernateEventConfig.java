@@ -0,0 +1,41 @@
+package study.querydsl.config;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.listener.MemberEntityWriteListener;
+import study.querydsl.listener.MemberPostCommitListener;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 스프링 빈으로 만든 Hibernate 이벤트 리스너를 SessionFactory 에 등록한다.
+ * HibernateConfig 는 EntityManagerFactory 를 만드는 데 쓰이므로 따로 둔다.
+ * */
+@Configuration
+@RequiredArgsConstructor
+public class HibernateEventConfig {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final MemberPostCommitListener memberPostCommitListener;
+    private final MemberEntityWriteListener memberEntityWriteListener;
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, memberPostCommitListener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, memberPostCommitListener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, memberPostCommitListener);
+        registry.appendListeners(EventType.PRE_INSERT, memberEntityWriteListener);
+        registry.appendListeners(EventType.PRE_UPDATE, memberEntityWriteListener);
+        registry.appendListeners(EventType.PRE_DELETE, memberEntityWriteListener);
+        registry.appendListeners(EventType.POST_INSERT, memberEntityWriteListener);
+        registry.appendListeners(EventType.POST_UPDATE, memberEntityWriteListener);
+        registry.appendListeners(EventType.POST_DELETE, memberEntityWriteListener);
+    }
+}
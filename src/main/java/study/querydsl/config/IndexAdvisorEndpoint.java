@@ -0,0 +1,43 @@
+package study.querydsl.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.MemberIndexAdvisor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * /actuator/indexadvisor : 관찰된 조건 모양별 실행 계획과 권장 인덱스
+ * */
+@Component
+@Endpoint(id = "indexadvisor")
+@RequiredArgsConstructor
+public class IndexAdvisorEndpoint {
+
+    private final MemberIndexAdvisor memberIndexAdvisor;
+
+    @ReadOperation
+    public List<Map<String, Object>> report() {
+        return memberIndexAdvisor.report().stream()
+                .map(advice -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("shape", advice.getShape());
+                    row.put("sort", advice.getSort());
+                    row.put("calls", advice.getCalls());
+                    row.put("memberScan", advice.isScan());
+                    row.put("access", advice.getAccess());
+                    row.put("scannedRows", advice.getScanned());
+                    row.put("memberRows", advice.getMemberRows());
+                    row.put("recommended", advice.getRecommended());
+                    row.put("sql", advice.getSql());
+                    row.put("plan", advice.getPlan());
+                    return row;
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+import study.querydsl.listener.MemberDataVersion;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * GET /v*&#47;members 응답에 데이터 버전과 요청(경로, 검색 조건, 페이지)으로 만든 ETag 를 붙인다.
+ * If-None-Match 가 같으면 컨트롤러를 호출하지 않고 304 를 돌려준다. (쿼리도, 직렬화도 하지 않는다)
+ *
+ * ETag 는 조회 전에 정해지므로 조회 도중 버전이 올라가면 새 데이터에 이전 ETag 가 붙는다.
+ * 이 경우 다음 요청이 304 를 받지 못할 뿐 낡은 데이터를 304 로 인정하지는 않는다.
+ * */
+@Component
+@RequiredArgsConstructor
+public class MemberETagInterceptor implements HandlerInterceptor {
+
+    private final MemberDataVersion memberDataVersion;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+
+        String eTag = eTag(request, memberDataVersion.current());
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        return true;
+    }
+
+    // 파라미터 순서가 달라도 같은 ETag 가 되도록 이름 순으로 정렬한다.
+    static String eTag(HttpServletRequest request, long version) {
+        StringBuilder canonical = new StringBuilder(request.getRequestURI());
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            canonical.append('&').append(parameter.getKey()).append('=').append(Arrays.toString(parameter.getValue()));
+        }
+        String hash = DigestUtils.md5DigestAsHex(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        return "W/\"" + version + "-" + hash + "\"";
+    }
+
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = eTag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,59 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.MemberExporter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * POST /actuator/memberexport {"format": "columnar" | "csv"}
+ * member.export.directory 아래에 members-시각.mbrc / .csv 로 내보낸다.
+ * */
+@Component
+@Endpoint(id = "memberexport")
+public class MemberExportEndpoint {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final MemberExporter memberExporter;
+    private final Path directory;
+
+    public MemberExportEndpoint(MemberExporter memberExporter,
+                                @Value("${member.export.directory:${java.io.tmpdir}}") String directory) {
+        this.memberExporter = memberExporter;
+        this.directory = Paths.get(directory);
+    }
+
+    @WriteOperation
+    public Map<String, Object> export(@Nullable String format) throws IOException {
+        MemberExporter.Format exportFormat = format != null
+                ? MemberExporter.Format.valueOf(format.toUpperCase(Locale.ROOT))
+                : MemberExporter.Format.COLUMNAR;
+        String extension = exportFormat == MemberExporter.Format.COLUMNAR ? ".mbrc" : ".csv";
+
+        Files.createDirectories(directory);
+        MemberExporter.Result result = memberExporter.export(
+                directory.resolve("members-" + LocalDateTime.now().format(FILE_TIME) + extension), exportFormat);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("path", result.getPath().toString());
+        body.put("format", result.getFormat());
+        body.put("rows", result.getRows());
+        body.put("ranges", result.getRanges());
+        body.put("millis", result.getMillis());
+        body.put("rowsPerSecond", result.getRowsPerSecond());
+        return body;
+    }
+}
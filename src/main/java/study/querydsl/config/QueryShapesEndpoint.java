@@ -0,0 +1,44 @@
+package study.querydsl.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.MemberQueryMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * /actuator/queryshapes : 가장 많이 호출된 (메서드, 조건 모양) 목록
+ * */
+@Component
+@Endpoint(id = "queryshapes")
+@RequiredArgsConstructor
+public class QueryShapesEndpoint {
+
+    private static final int LIMIT = 20;
+
+    private final MemberQueryMetrics memberQueryMetrics;
+
+    @ReadOperation
+    public List<Map<String, Object>> heavyHitters() {
+        return memberQueryMetrics.heavyHitters(LIMIT).stream()
+                .map(meters -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("method", meters.getMethod());
+                    row.put("shape", meters.getShape());
+                    row.put("sized", meters.isSized());
+                    row.put("calls", meters.getCalls());
+                    row.put("meanMillis", meters.getLatency().mean(TimeUnit.MILLISECONDS));
+                    row.put("maxMillis", meters.getLatency().max(TimeUnit.MILLISECONDS));
+                    row.put("meanRows", meters.getRows().mean());
+                    row.put("meanStatements", meters.getStatements().mean());
+                    return row;
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,45 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+
+/**
+ * member.replica.enabled=true 이면 spring.datasource 를 primary 로, member.replica.* 를 replica 로 하는
+ * 라우팅 DataSource 를 등록한다. (Boot 기본 DataSource 는 만들어지지 않는다)
+ * */
+@Configuration
+@ConditionalOnProperty(prefix = "member.replica", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReplicaRouting replicaRouting(DataSourceProperties properties,
+                                         @Value("${member.replica.url}") String url,
+                                         @Value("${member.replica.username:sa}") String username,
+                                         @Value("${member.replica.password:}") String password) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setJdbcUrl(url);
+        replica.setUsername(username);
+        replica.setPassword(password);
+        replica.setDriverClassName(properties.determineDriverClassName());
+        replica.setReadOnly(true);
+
+        return new ReplicaRouting(primary, replica);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRouting replicaRouting) {
+        return replicaRouting.dataSource();
+    }
+}
@@ -0,0 +1,156 @@
+package study.querydsl.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import study.querydsl.listener.MemberChangedEvent;
+import study.querydsl.listener.TeamChangedEvent;
+import study.querydsl.repository.MemberBulkChangedEvent;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * primary 의 replica_heartbeat 에 주기적으로 현재 시각을 쓰고, replica 에서 읽어 복제 지연을 잰다.
+ *
+ * - member.replica.lag (초). replica 에 아직 heartbeat 가 없으면 NaN
+ * - member.datasource.route{target=primary|replica}
+ *
+ * member / team 커밋 이벤트를 가장 먼저 받아 ReplicaRouting 에 알린다. 이후 heartbeat 가 replica 에 보일 때까지
+ * 읽기 전용 조회도 primary 로 간다.
+ *
+ * member.replica.init-schema=true 이면 기동 시 primary 스키마(ddl-auto 결과)를 replica 에 복사한다.
+ * 로컬 / 테스트에서 H2 인스턴스 하나를 replica 로 세울 때 쓴다. (데이터는 복제하지 않는다)
+ * */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "member.replica", name = "enabled", havingValue = "true")
+public class ReplicaHeartbeat implements MeterBinder, DisposableBean {
+
+    private final ReplicaRouting replicaRouting;
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final boolean initSchema;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("replica-heartbeat-"));
+
+    private volatile double lagSeconds = Double.NaN;
+
+    // EntityManagerFactory 는 ddl-auto 로 스키마가 만들어진 뒤에 복사하려고 받는다.
+    public ReplicaHeartbeat(ReplicaRouting replicaRouting,
+                            EntityManagerFactory entityManagerFactory,
+                            @Value("${member.replica.init-schema:false}") boolean initSchema,
+                            @Value("${member.replica.heartbeat-interval:1s}") Duration interval) {
+        this.replicaRouting = replicaRouting;
+        this.primary = new JdbcTemplate(replicaRouting.primary());
+        this.replica = new JdbcTemplate(replicaRouting.replica());
+        this.initSchema = initSchema;
+        this.interval = interval;
+    }
+
+    @PostConstruct
+    public void start() {
+        primary.execute("create table if not exists replica_heartbeat (id int primary key, beat bigint not null)");
+        if (initSchema) {
+            copySchema();
+        }
+        scheduler.scheduleWithFixedDelay(this::beat, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public double lagSeconds() {
+        return lagSeconds;
+    }
+
+    public void beat() {
+        try {
+            primary.update("merge into replica_heartbeat key (id) values (1, ?)", System.currentTimeMillis());
+            List<Long> beats = replica.queryForList("select beat from replica_heartbeat where id = 1", Long.class);
+            if (beats.isEmpty()) {
+                lagSeconds = Double.NaN;
+                return;
+            }
+            replicaRouting.onReplicaBeat(beats.get(0));
+            lagSeconds = (System.currentTimeMillis() - beats.get(0)) / 1000.0;
+        } catch (DataAccessException e) {
+            lagSeconds = Double.NaN;
+            log.warn("replica heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onMemberChanged(MemberChangedEvent event) {
+        replicaRouting.onPrimaryWrite();
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onTeamChanged(TeamChangedEvent event) {
+        replicaRouting.onPrimaryWrite();
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onBulkChanged(MemberBulkChangedEvent event) {
+        replicaRouting.onPrimaryWrite();
+    }
+
+    // H2 의 SCRIPT NODATA 로 테이블, 시퀀스, 인덱스 DDL 을 뽑아 그대로 실행한다.
+    private void copySchema() {
+        List<String> statements = primary.queryForList("script nodata", String.class);
+        // replica 풀은 readOnly 커넥션을 주므로 DDL 을 실행하는 동안만 풀어 둔다.
+        replica.execute((Connection connection) -> {
+            connection.setReadOnly(false);
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : statements) {
+                    // 사용자 생성 구문과 행 수 주석은 건너뛴다.
+                    if (!sql.startsWith("--") && !sql.toUpperCase().startsWith("CREATE USER")) {
+                        statement.execute(sql);
+                    }
+                }
+            } finally {
+                connection.setReadOnly(true);
+            }
+            return null;
+        });
+        log.info("replica schema initialized: {} statements", statements.size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("member.replica.lag", this, ReplicaHeartbeat::lagSeconds)
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("member.datasource.route", replicaRouting, ReplicaRouting::primaryRoutes)
+                .tag("target", ReplicaRouting.PRIMARY)
+                .register(registry);
+        FunctionCounter.builder("member.datasource.route", replicaRouting, ReplicaRouting::replicaRoutes)
+                .tag("target", ReplicaRouting.REPLICA)
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
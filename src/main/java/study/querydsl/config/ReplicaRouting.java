@@ -0,0 +1,115 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))은 replica 로, 나머지는 primary 로 보낸다.
+ *
+ * 트랜잭션이 시작될 때는 아직 readOnly 여부가 동기화 매니저에 올라오기 전이므로
+ * LazyConnectionDataSourceProxy 로 감싸 첫 SQL 을 실행할 때 커넥션을 고른다.
+ * 바깥 쓰기 트랜잭션에 참여한 조회는 그 트랜잭션의 primary 커넥션을 그대로 쓰므로 자기가 쓴 값을 읽는다.
+ *
+ * replica 는 마지막 member / team 커밋 뒤에 primary 에 쓴 heartbeat 가 replica 에 보일 때만 쓴다.
+ * 그 전에는 readOnly 트랜잭션도 primary 로 보낸다. 캐시(결과 캐시, 2차 / 쿼리 캐시, ETag 버전)는
+ * primary 커밋 시점에 무효화되므로, 밀린 replica 가 무효화 이후에 낡은 행을 캐시에 다시 채우지 못하게 하려는 것이다.
+ *
+ * primary / replica 는 빈으로 등록하지 않는다. (p6spy 가 라우팅 DataSource 하나만 감싸도록)
+ * */
+public class ReplicaRouting implements DisposableBean {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final LongAdder primaryRoutes = new LongAdder();
+    private final LongAdder replicaRoutes = new LongAdder();
+    private final DataSource dataSource;
+
+    // primary 시각(ms). 기동 전 변경도 replica 에 반영됐는지 모르므로 기동 시각에서 시작한다.
+    private final AtomicLong lastPrimaryWrite = new AtomicLong(System.currentTimeMillis());
+    private volatile long replicaBeat;
+
+    public ReplicaRouting(HikariDataSource primary, HikariDataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+
+        RoutingDataSource routing = new RoutingDataSource();
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        targets.put(REPLICA, replica);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        this.dataSource = new LazyConnectionDataSourceProxy(routing);
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public DataSource primary() {
+        return primary;
+    }
+
+    public DataSource replica() {
+        return replica;
+    }
+
+    /**
+     * member / team 변경이 primary 에 커밋됐다. (ReplicaHeartbeat 가 다른 구독자보다 먼저 호출한다)
+     * */
+    public void onPrimaryWrite() {
+        lastPrimaryWrite.accumulateAndGet(System.currentTimeMillis(), Math::max);
+    }
+
+    /**
+     * replica 에서 읽은 heartbeat 값. primary 가 그 시각에 쓴 값이다.
+     * */
+    public void onReplicaBeat(long beat) {
+        replicaBeat = beat;
+    }
+
+    /**
+     * 마지막 커밋 이후에 쓴 heartbeat 가 replica 에 보이면 그 커밋도 반영된 것이다.
+     * */
+    public boolean isReplicaCaughtUp() {
+        return replicaBeat > lastPrimaryWrite.get();
+    }
+
+    public long primaryRoutes() {
+        return primaryRoutes.sum();
+    }
+
+    public long replicaRoutes() {
+        return replicaRoutes.sum();
+    }
+
+    @Override
+    public void destroy() {
+        replica.close();
+        primary.close();
+    }
+
+    private class RoutingDataSource extends AbstractRoutingDataSource {
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && isReplicaCaughtUp()) {
+                replicaRoutes.increment();
+                return REPLICA;
+            }
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package study.querydsl.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 2차 캐시 리전별 적중률. 건수(hibernate.second.level.cache.requests)는 Hibernate 기본 지표로도 나온다.
+ * */
+@Component
+@RequiredArgsConstructor
+public class SecondLevelCacheMetrics implements MeterBinder {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            Gauge.builder("member.second-level-cache.hit-ratio", statistics, s -> hitRatio(s.getCacheRegionStatistics(region)))
+                    .tag("region", region)
+                    .register(registry);
+        }
+    }
+
+    private static double hitRatio(CacheRegionStatistics region) {
+        if (region == null) {
+            return 0;
+        }
+        long total = region.getHitCount() + region.getMissCount();
+        return total == 0 ? 0 : (double) region.getHitCount() / total;
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import study.querydsl.listener.SqlStatementCounter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 요청마다 실행된 SQL 수를 세고 예산을 넘으면 경고를 남긴다.
+ * 지연 로딩(member.team, team.members)으로 생기는 N+1 을 잡기 위한 용도다.
+ * */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StatementBudgetInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = StatementBudgetInterceptor.class.getName() + ".start";
+
+    private final StatementBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START_ATTRIBUTE, SqlStatementCounter.current());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Long start = (Long) request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+
+        long executed = SqlStatementCounter.current() - start;
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        int budget = properties.budgetOf(pattern);
+        if (executed > budget) {
+            log.warn("SQL statement budget exceeded: {} {} executed {} statements (budget {})",
+                    request.getMethod(), pattern, executed, budget);
+            meterRegistry.counter("member.statement-budget.exceeded", "endpoint", String.valueOf(pattern)).increment();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 요청 하나가 실행해도 되는 SQL 수. 엔드포인트 패턴별로 지정하고, 없으면 기본값을 쓴다.
+ * */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "member.statement-budget")
+public class StatementBudgetProperties {
+
+    private int defaultBudget = 10;
+
+    // key : @GetMapping 의 경로 패턴 (예: /v1/members)
+    private Map<String, Integer> endpoints = new HashMap<>();
+
+    public int budgetOf(String pattern) {
+        return pattern != null ? endpoints.getOrDefault(pattern, defaultBudget) : defaultBudget;
+    }
+}
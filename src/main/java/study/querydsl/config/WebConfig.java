@@ -0,0 +1,25 @@
+package study.querydsl.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final StatementBudgetInterceptor statementBudgetInterceptor;
+    private final MemberETagInterceptor memberETagInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(memberETagInterceptor)
+                .addPathPatterns("/v*/members", "/v*/members/**");
+        // 대량 적재는 행 수만큼 SQL 을 실행하므로 예산에서 뺀다.
+        // 스트리밍 / 리액티브 응답은 요청 스레드가 아닌 곳에서 조회하므로 스레드별 카운터로 셀 수 없다.
+        registry.addInterceptor(statementBudgetInterceptor)
+                .addPathPatterns("/v*/members", "/v*/members/**")
+                .excludePathPatterns("/v1/members/bulk", "/v2/members/stream", "/v*/members/reactive");
+    }
+}
@@ -3,13 +3,30 @@ package study.querydsl.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydsl.dto.MemberImportResult;
+import study.querydsl.dto.MemberSeekCursor;
+import study.querydsl.dto.MemberSeekPage;
+import study.querydsl.repository.MemberBulkImporter;
 import study.querydsl.repository.MemberJPARepository;
 import study.querydsl.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberReactiveRepository;
 import study.querydsl.repository.MemberRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -17,17 +34,48 @@ import java.util.List;
 public class MemberController {
     private final MemberJPARepository memberJPARepository;
     private final MemberRepository memberRepository;
+    private final MemberNdjsonWriter memberNdjsonWriter;
+    private final MemberReactiveRepository memberReactiveRepository;
+    private final MemberBulkImporter memberBulkImporter;
+
+    private static final int MAX_SEEK_SIZE = 2000;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition searchCondition) {
         return memberJPARepository.findBySearchCondition(searchCondition);
     }
 
+    // NDJSON({username, age, teamName} 한 줄씩)을 읽으면서 chunk 단위로 넣는다. 잘못된 줄이 있으면 400 과 줄 번호
+    @PostMapping(value = "/v1/members/bulk", consumes = {"application/x-ndjson", MediaType.APPLICATION_JSON_VALUE})
+    public MemberImportResult importMembersV1(InputStream body) throws IOException {
+        try {
+            return memberBulkImporter.importNdjson(body);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
     @GetMapping("/v2/members")
     public List<MemberTeamDto> searchMemberV2(MemberSearchCondition searchCondition) {
         return memberRepository.search(searchCondition);
     }
 
+    // 결과를 모으지 않고 한 줄씩 흘려 보낸다. 대량 내보내기용
+    @GetMapping("/v2/members/stream")
+    public ResponseEntity<StreamingResponseBody> streamMemberV2(MemberSearchCondition searchCondition) {
+        StreamingResponseBody body = outputStream -> memberNdjsonWriter.write(searchCondition, outputStream);
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // R2DBC 로 조회한다. 결과를 기다리는 동안 서블릿 스레드를 반납한다.
+    @GetMapping("/v2/members/reactive")
+    public Flux<MemberTeamDto> searchMemberV2Reactive(MemberSearchCondition searchCondition) {
+        return memberReactiveRepository.search(searchCondition);
+    }
+
     @GetMapping("/v3/members")
     public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition searchCondition, Pageable pageable) {
         return memberRepository.pagingSimple(searchCondition, pageable);
@@ -38,4 +86,30 @@ public class MemberController {
         return memberRepository.pagingComplex(searchCondition, pageable);
     }
 
+    @GetMapping("/v4/members/reactive")
+    public Mono<Page<MemberTeamDto>> searchMemberV4Reactive(MemberSearchCondition searchCondition, Pageable pageable) {
+        return memberReactiveRepository.pagingComplex(searchCondition, pageable);
+    }
+
+    // count 없이 다음 페이지 여부만 알려준다. 무한 스크롤용
+    @GetMapping("/v6/members")
+    public Slice<MemberTeamDto> searchMemberV6(MemberSearchCondition searchCondition, Pageable pageable) {
+        return memberRepository.searchSlice(searchCondition, pageable);
+    }
+
+    // offset 없이 continuation token 으로 다음 페이지를 읽는다.
+    @GetMapping("/v5/members")
+    public MemberSeekPage searchMemberV5(MemberSearchCondition searchCondition,
+                                         @RequestParam(required = false) String next,
+                                         @RequestParam(defaultValue = "ID") MemberSeekCursor.SortKey sort,
+                                         @RequestParam(defaultValue = "20") int size) {
+        MemberSeekCursor cursor;
+        try {
+            cursor = next != null ? MemberSeekCursor.decode(next) : MemberSeekCursor.first(sort);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return memberRepository.pagingSeek(searchCondition, cursor, Math.min(Math.max(size, 1), MAX_SEEK_SIZE));
+    }
+
 }
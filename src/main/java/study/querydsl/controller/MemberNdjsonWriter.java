@@ -0,0 +1,68 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * 검색 결과를 한 줄에 한 건씩(NDJSON) 바로 응답에 쓴다.
+ * 결과를 List 로 모으지 않기 때문에 건수와 상관없이 메모리 사용량이 일정하다.
+ * */
+@Component
+public class MemberNdjsonWriter {
+
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter objectWriter;
+    private final int fetchSize;
+
+    public MemberNdjsonWriter(MemberRepository memberRepository,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              @Value("${member.stream.fetch-size:500}") int fetchSize) {
+        this.memberRepository = memberRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectWriter = objectMapper.writerFor(MemberTeamDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n");
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * StreamingResponseBody 는 요청 스레드가 아닌 곳에서 실행되므로 트랜잭션을 직접 연다.
+     * */
+    public void write(MemberSearchCondition condition, OutputStream outputStream) throws IOException {
+        try (SequenceWriter sequenceWriter = objectWriter.writeValues(outputStream)) {
+            long[] count = {0};
+            transactionTemplate.executeWithoutResult(status ->
+                    memberRepository.searchStream(condition, fetchSize, row -> {
+                        try {
+                            sequenceWriter.write(row);
+                            // 첫 줄은 바로 보내고, 이후에는 fetch size 단위로 내보낸다.
+                            if (++count[0] == 1 || count[0] % fetchSize == 0) {
+                                sequenceWriter.flush();
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
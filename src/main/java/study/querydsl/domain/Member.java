@@ -1,15 +1,28 @@
 package study.querydsl.domain;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
+// 실제로 들어오는 검색 조건 모양에 맞춘 인덱스. (/actuator/indexadvisor 참고)
+@Table(indexes = {
+        @Index(name = "idx_member_team_age", columnList = "team_id, age"),
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
-    @Id @GeneratedValue
+    // allocationSize 만큼 시퀀스를 한 번에 받아 insert 마다 시퀀스를 조회하지 않는다.
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     private Long id;
 
     private String username;
@@ -4,8 +4,10 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import study.querydsl.projection.GenerateProjection;
 
 @Data
+@GenerateProjection
 @AllArgsConstructor
 @NoArgsConstructor
 public class MemberDto {
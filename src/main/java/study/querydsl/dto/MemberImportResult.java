@@ -0,0 +1,13 @@
+package study.querydsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MemberImportResult {
+    private long rows;
+    private long teamsCreated;
+    private long millis;
+    private long rowsPerSecond;
+}
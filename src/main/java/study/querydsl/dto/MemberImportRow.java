@@ -0,0 +1,15 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * POST /v1/members/bulk 의 NDJSON 한 줄. username, age 는 필수이고 teamName 이 없으면 팀 없이 넣는다.
+ * */
+@Data
+@NoArgsConstructor
+public class MemberImportRow {
+    private String username;
+    private Integer age;
+    private String teamName;
+}
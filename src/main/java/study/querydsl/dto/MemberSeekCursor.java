@@ -0,0 +1,59 @@
+package study.querydsl.dto;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * seek(keyset) 페이징에서 마지막으로 본 위치를 나타낸다.
+ * 클라이언트에게는 encode() 한 불투명 토큰만 전달한다.
+ * */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class MemberSeekCursor {
+
+    public enum SortKey {
+        ID, AGE
+    }
+
+    private final SortKey sortKey;
+    // 첫 페이지는 null
+    private final Long lastId;
+    private final Integer lastAge;
+
+    public static MemberSeekCursor first(SortKey sortKey) {
+        return new MemberSeekCursor(sortKey, null, null);
+    }
+
+    public MemberSeekCursor next(MemberTeamDto last) {
+        return new MemberSeekCursor(sortKey, last.getMemberId(), sortKey == SortKey.AGE ? last.getAge() : null);
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+
+    // "i:{id}" 또는 "a:{age}:{id}" 를 base64url 로 감싼다.
+    public String encode() {
+        String raw = sortKey == SortKey.AGE ? "a:" + lastAge + ":" + lastId : "i:" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberSeekCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (parts.length == 2 && "i".equals(parts[0])) {
+                return new MemberSeekCursor(SortKey.ID, Long.valueOf(parts[1]), null);
+            }
+            if (parts.length == 3 && "a".equals(parts[0])) {
+                return new MemberSeekCursor(SortKey.AGE, Long.valueOf(parts[2]), Integer.valueOf(parts[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("잘못된 continuation token 입니다: " + token, e);
+        }
+        throw new IllegalArgumentException("잘못된 continuation token 입니다: " + token);
+    }
+}
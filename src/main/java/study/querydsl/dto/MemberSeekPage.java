@@ -0,0 +1,16 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MemberSeekPage {
+    private final List<MemberTeamDto> content;
+    // 다음 페이지가 없으면 null
+    private final String next;
+
+    public boolean isHasNext() {
+        return next != null;
+    }
+}
@@ -0,0 +1,18 @@
+package study.querydsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 팀 이름별 member.age 집계. 멤버가 없으면 max / min / avg 는 null 이다.
+ * */
+@Data
+@AllArgsConstructor
+public class TeamStatsDto {
+    private String teamName;
+    private long count;
+    private long sum;
+    private Double avg;
+    private Integer max;
+    private Integer min;
+}
@@ -4,8 +4,10 @@ import com.querydsl.core.annotations.QueryProjection;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import study.querydsl.projection.GenerateProjection;
 
 @Data
+@GenerateProjection
 @NoArgsConstructor
 public class UserDto {
     private String title;
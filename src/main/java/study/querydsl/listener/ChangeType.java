@@ -0,0 +1,5 @@
+package study.querydsl.listener;
+
+public enum ChangeType {
+    INSERT, UPDATE, DELETE
+}
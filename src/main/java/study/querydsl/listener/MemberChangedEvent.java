@@ -0,0 +1,16 @@
+package study.querydsl.listener;
+
+import lombok.Value;
+
+/**
+ * Member 엔티티 변경이 커밋된 뒤 발행된다. (롤백되면 발행되지 않는다)
+ * INSERT 는 before 가, DELETE 는 after 가 null 이다.
+ * UPDATE 라도 Hibernate 가 이전 상태를 모르면 before 가 null 일 수 있다.
+ * */
+@Value
+public class MemberChangedEvent {
+    ChangeType type;
+    Long memberId;
+    MemberSnapshot before;
+    MemberSnapshot after;
+}
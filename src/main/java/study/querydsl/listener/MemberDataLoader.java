@@ -0,0 +1,186 @@
+package study.querydsl.listener;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.repository.MemberBulkChangedEvent;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 운영 규모의 데이터를 로컬에서 재현하기 위한 대량 적재기.
+ * member.loader.enabled=true 일 때만 동작한다.
+ *
+ * - 팀 크기는 Zipf 분포를 따른다. (소수의 팀에 멤버가 몰린다)
+ * - 나이는 평균 38, 표준편차 12 인 정규분포를 18 ~ 80 으로 자른다.
+ * - hibernate.jdbc.batch_size 단위로 flush / clear 하고, chunk-size 단위로 커밋한다.
+ * - 적재하는 동안 MemberPostCommitListener 는 엔티티마다 이벤트를 내지 않고, 2차 캐시에도 넣지 않는다.
+ *   끝나면 MemberBulkChangedEvent 를 한 번 발행한다. (MemberBulkImporter 와 같은 방식)
+ * */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "member.loader", name = "enabled", havingValue = "true")
+public class MemberDataLoader implements ApplicationRunner {
+
+    public static final String OPERATION = "load";
+
+    private static final ThreadLocal<Boolean> RUNNING = ThreadLocal.withInitial(() -> false);
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final long members;
+    private final int teams;
+    private final double zipfExponent;
+    private final int chunkSize;
+    private final int flushSize;
+    private final long seed;
+
+    public MemberDataLoader(EntityManager entityManager,
+                            PlatformTransactionManager transactionManager,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${member.loader.members:1000000}") long members,
+                            @Value("${member.loader.teams:1000}") int teams,
+                            @Value("${member.loader.zipf-exponent:1.1}") double zipfExponent,
+                            @Value("${member.loader.chunk-size:10000}") int chunkSize,
+                            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int flushSize,
+                            @Value("${member.loader.seed:42}") long seed) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.members = members;
+        this.teams = teams;
+        this.zipfExponent = zipfExponent;
+        this.chunkSize = chunkSize;
+        this.flushSize = flushSize;
+        this.seed = seed;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        load();
+    }
+
+    public long load() {
+        long start = System.nanoTime();
+        RUNNING.set(true);
+        try {
+            long[] teamIds = transactionTemplate.execute(status -> persistTeams());
+
+            ZipfSampler teamSampler = new ZipfSampler(teams, zipfExponent);
+            Random random = new Random(seed);
+
+            long loaded = 0;
+            while (loaded < members) {
+                long from = loaded;
+                long to = Math.min(members, loaded + chunkSize);
+                transactionTemplate.executeWithoutResult(status -> persistMembers(from, to, teamIds, teamSampler, random));
+                loaded = to;
+
+                if (loaded % (chunkSize * 100L) == 0 || loaded == members) {
+                    log.info("member loader: {} / {} rows, {} rows/sec", loaded, members, rowsPerSecond(loaded, start));
+                }
+            }
+        } finally {
+            RUNNING.remove();
+        }
+
+        // team.members 컬렉션을 거치지 않고 넣었으므로 컬렉션 캐시를 비운다.
+        entityManager.getEntityManagerFactory().getCache()
+                .unwrap(org.hibernate.Cache.class)
+                .evictCollectionData(Team.class.getName() + ".members");
+        eventPublisher.publishEvent(new MemberBulkChangedEvent(OPERATION, members));
+
+        log.info("member loader finished: {} members, {} teams in {} ms ({} rows/sec)",
+                members, teams, (System.nanoTime() - start) / 1_000_000, rowsPerSecond(members + teams, start));
+        return members;
+    }
+
+    public static boolean isRunning() {
+        return RUNNING.get();
+    }
+
+    private long[] persistTeams() {
+        ignoreSecondLevelCache();
+        long[] teamIds = new long[teams];
+        for (int i = 0; i < teams; i++) {
+            Team team = new Team("team" + i);
+            entityManager.persist(team);
+            teamIds[i] = team.getId();
+            flushAndClearIfNeeded(i + 1);
+        }
+        return teamIds;
+    }
+
+    private void persistMembers(long from, long to, long[] teamIds, ZipfSampler teamSampler, Random random) {
+        ignoreSecondLevelCache();
+        for (long i = from; i < to; i++) {
+            Member member = new Member("member" + i, nextAge(random));
+            // 생성자로 팀을 넣으면 team.members 컬렉션이 계속 커지므로 참조만 연결한다.
+            member.setTeam(entityManager.getReference(Team.class, teamIds[teamSampler.sample(random)]));
+            entityManager.persist(member);
+            flushAndClearIfNeeded(i - from + 1);
+        }
+    }
+
+    // 적재한 행은 대부분 다시 읽히지 않으므로 커밋 후 2차 캐시에 넣지 않는다. 트랜잭션의 세션에만 적용된다.
+    private void ignoreSecondLevelCache() {
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+    }
+
+    private void flushAndClearIfNeeded(long count) {
+        if (count % flushSize == 0) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+
+    private static int nextAge(Random random) {
+        int age = (int) Math.round(38 + random.nextGaussian() * 12);
+        return Math.max(18, Math.min(80, age));
+    }
+
+    private static long rowsPerSecond(long rows, long startNanos) {
+        long elapsed = Math.max(1, System.nanoTime() - startNanos);
+        return rows * 1_000_000_000L / elapsed;
+    }
+
+    /**
+     * 순위 k 의 가중치를 1 / k^s 로 두고 누적 분포에서 이진 탐색한다.
+     * 부하 생성기(loadTest)도 같은 분포로 팀 이름을 고른다.
+     * */
+    public static class ZipfSampler {
+        private final double[] cumulative;
+
+        public ZipfSampler(int size, double exponent) {
+            cumulative = new double[size];
+            double sum = 0;
+            for (int k = 0; k < size; k++) {
+                sum += 1.0 / Math.pow(k + 1, exponent);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < size; k++) {
+                cumulative[k] /= sum;
+            }
+        }
+
+        public int sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            int rank = index >= 0 ? index : -index - 1;
+            return Math.min(rank, cumulative.length - 1);
+        }
+    }
+}
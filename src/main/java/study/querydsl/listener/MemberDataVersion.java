@@ -0,0 +1,43 @@
+package study.querydsl.listener;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.MemberBulkChangedEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * member / team 데이터가 커밋으로 바뀔 때마다 올라가는 버전. ETag 에 쓴다.
+ * 재시작 전의 ETag 와 겹치지 않도록 기동 시각에서 시작한다.
+ *
+ * 다른 구독자가 캐시를 비운 뒤에 올린다. 먼저 올리면 비우기 전의 낡은 응답이 새 버전으로 태그될 수 있다.
+ * */
+@Component
+public class MemberDataVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onMemberChanged(MemberChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onTeamChanged(TeamChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onBulkChanged(MemberBulkChangedEvent event) {
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,73 @@
+package study.querydsl.listener;
+
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.event.spi.PreDeleteEvent;
+import org.hibernate.event.spi.PreDeleteEventListener;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+
+/**
+ * Member / Team 엔티티 액션의 pre / post 이벤트 사이에 실행되는 SQL 은 엔티티 쓰기다.
+ * SqlStatementInspector 는 그 밖의 member / team DML 을 벌크 연산으로 본다. (HibernateEventConfig 에서 등록)
+ * */
+@Component
+public class MemberEntityWriteListener implements PreInsertEventListener, PreUpdateEventListener, PreDeleteEventListener,
+        PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        begin(event.getPersister());
+        return false;
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        begin(event.getPersister());
+        return false;
+    }
+
+    @Override
+    public boolean onPreDelete(PreDeleteEvent event) {
+        begin(event.getPersister());
+        return false;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        SqlStatementInspector.endEntityWrite();
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        SqlStatementInspector.endEntityWrite();
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        SqlStatementInspector.endEntityWrite();
+    }
+
+    // 커밋 후 처리는 MemberPostCommitListener 가 한다.
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private static void begin(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        if (type == Member.class || type == Team.class) {
+            SqlStatementInspector.beginEntityWrite();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package study.querydsl.listener;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.repository.MemberBulkImporter;
+
+/**
+ * Member / Team 엔티티 변경을 커밋 후에 MemberChangedEvent / TeamChangedEvent 로 바꿔 발행한다.
+ * 메모리에 member 데이터를 들고 있는 쪽은 이 이벤트와 MemberBulkChangedEvent 를 구독한다.
+ * (HibernateEventConfig 에서 등록)
+ * */
+@Component
+@RequiredArgsConstructor
+public class MemberPostCommitListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publish(ChangeType.INSERT, event.getPersister(), event.getId(), null, event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publish(ChangeType.UPDATE, event.getPersister(), event.getId(), event.getOldState(), event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publish(ChangeType.DELETE, event.getPersister(), event.getId(), event.getDeletedState(), null);
+    }
+
+    // 롤백된 변경은 알리지 않는다.
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    // 대량 적재는 MemberBulkImporter / MemberDataLoader 가 끝난 뒤 한 번 알린다. 액션을 커밋까지 들고 있지도 않는다.
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        if (isBulkLoading()) {
+            return false;
+        }
+        Class<?> type = persister.getMappedClass();
+        return type == Member.class || type == Team.class;
+    }
+
+    private void publish(ChangeType type, EntityPersister persister, Object id, Object[] before, Object[] after) {
+        // 2차 캐시 때문에 커밋까지 들고 있던 액션이어도 적재 중이면 알리지 않는다.
+        if (isBulkLoading()) {
+            return;
+        }
+        Class<?> entity = persister.getMappedClass();
+        if (entity == Member.class) {
+            eventPublisher.publishEvent(new MemberChangedEvent(type, (Long) id, member(persister, before), member(persister, after)));
+        } else if (entity == Team.class) {
+            eventPublisher.publishEvent(new TeamChangedEvent(type, (Long) id, teamName(persister, before), teamName(persister, after)));
+        }
+    }
+
+    private static boolean isBulkLoading() {
+        return MemberBulkImporter.isRunning() || MemberDataLoader.isRunning();
+    }
+
+    private static MemberSnapshot member(EntityPersister persister, Object[] state) {
+        if (state == null) {
+            return null;
+        }
+        Integer age = (Integer) property(persister, state, "age");
+        return new MemberSnapshot(
+                (String) property(persister, state, "username"),
+                age != null ? age : 0,
+                teamId(property(persister, state, "team")));
+    }
+
+    private static String teamName(EntityPersister persister, Object[] state) {
+        return state != null ? (String) property(persister, state, "name") : null;
+    }
+
+    private static Object property(EntityPersister persister, Object[] state, String name) {
+        return state[persister.getEntityMetamodel().getPropertyIndex(name)];
+    }
+
+    // 프록시를 초기화하지 않고 id 만 꺼낸다.
+    private static Long teamId(Object team) {
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return team instanceof Team ? ((Team) team).getId() : null;
+    }
+}
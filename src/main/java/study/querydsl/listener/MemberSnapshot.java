@@ -0,0 +1,13 @@
+package study.querydsl.listener;
+
+import lombok.Value;
+
+/**
+ * 커밋 시점의 Member 상태. 엔티티를 그대로 넘기지 않아 리스너가 지연 로딩을 일으키지 않는다.
+ * */
+@Value
+public class MemberSnapshot {
+    String username;
+    int age;
+    Long teamId;
+}
@@ -0,0 +1,55 @@
+package study.querydsl.listener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 스레드별로 실행된 SQL 수를 센다. 값은 줄어들지 않으므로 전후 차이로 사용한다.
+ * capture() 중에는 SQL 문도 모아 둔다. (성능 테스트가 실패 원인을 보여줄 때 사용)
+ * */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    static void increment(String sql) {
+        COUNT.get()[0]++;
+        List<String> captured = CAPTURED.get();
+        if (captured != null) {
+            captured.add(sql);
+        }
+    }
+
+    public static long current() {
+        return COUNT.get()[0];
+    }
+
+    /**
+     * close 할 때까지 현재 스레드에서 실행된 SQL 을 모은다.
+     * */
+    public static Capture capture() {
+        List<String> statements = new ArrayList<>();
+        CAPTURED.set(statements);
+        return new Capture(statements);
+    }
+
+    public static final class Capture implements AutoCloseable {
+        private final List<String> statements;
+
+        private Capture(List<String> statements) {
+            this.statements = statements;
+        }
+
+        public List<String> statements() {
+            return statements;
+        }
+
+        @Override
+        public void close() {
+            CAPTURED.remove();
+        }
+    }
+}
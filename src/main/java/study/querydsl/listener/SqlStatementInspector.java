@@ -0,0 +1,139 @@
+package study.querydsl.listener;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.repository.MemberBulkChangedEvent;
+import study.querydsl.repository.MemberBulkOperations;
+import study.querydsl.repository.MemberCountCache;
+
+import java.util.Locale;
+
+/**
+ * Hibernate 가 실행하는 모든 SQL 을 지나가며 확인한다.
+ * persist 로 인한 insert 뿐 아니라 벌크 연산(execute())도 여기서 잡을 수 있다.
+ * 벌크 연산은 엔티티 이벤트가 없으므로 커밋 후에 MemberBulkChangedEvent 를 대신 발행한다.
+ *
+ * SQL 모양으로는 id 조건 벌크 update 와 엔티티 update 를 가릴 수 없으므로 어디서 실행됐는지로 가른다.
+ * MemberEntityWriteListener 가 엔티티 액션 동안 표시해 두고, 표시가 없는 member / team DML 은 모두 벌크다.
+ * */
+@Component
+@RequiredArgsConstructor
+public class SqlStatementInspector implements StatementInspector {
+
+    private static final ThreadLocal<Boolean> ENTITY_WRITE = ThreadLocal.withInitial(() -> false);
+
+    private final MemberCountCache memberCountCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public String inspect(String sql) {
+        SqlStatementCounter.increment(sql);
+        String statement = stripComment(sql).toLowerCase(Locale.ROOT);
+        if (isMemberWrite(statement)) {
+            onMemberWrite(!ENTITY_WRITE.get());
+        }
+        return sql;
+    }
+
+    static void beginEntityWrite() {
+        ENTITY_WRITE.set(true);
+    }
+
+    static void endEntityWrite() {
+        ENTITY_WRITE.remove();
+    }
+
+    /**
+     * 현재 트랜잭션에서 member / team 에 쓰기가 있었는지. 커밋 전 데이터를 모르는 메모리 조회 경로는 이때 DB 로 돌아간다.
+     * */
+    public static boolean isMemberWritePending() {
+        return findSynchronization() != null;
+    }
+
+    /**
+     * 쓰기 트랜잭션 안이면 flush 전 변경도 있을 수 있다. 커밋된 데이터만 아는 메모리 조회 경로는 이때 DB 로 조회한다.
+     * */
+    public static boolean isInWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || isMemberWritePending());
+    }
+
+    private void onMemberWrite(boolean bulk) {
+        // 같은 트랜잭션 안에서 다시 조회하는 경우를 위해 바로 비우고, 커밋(롤백) 후에 한 번 더 비운다.
+        memberCountCache.invalidateAll();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        // 트랜잭션당 한 번만 등록한다.
+        MemberWriteSynchronization synchronization = findSynchronization();
+        if (synchronization == null) {
+            synchronization = new MemberWriteSynchronization();
+            TransactionSynchronizationManager.registerSynchronization(synchronization);
+        }
+        // MemberBulkOperations 는 chunk 마다 커밋하므로 전체가 끝난 뒤 직접 한 번 발행한다.
+        synchronization.bulk |= bulk && !MemberBulkOperations.isRunning();
+    }
+
+    private static MemberWriteSynchronization findSynchronization() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof MemberWriteSynchronization) {
+                return (MemberWriteSynchronization) synchronization;
+            }
+        }
+        return null;
+    }
+
+    private class MemberWriteSynchronization implements TransactionSynchronization {
+        private boolean bulk;
+
+        @Override
+        public void afterCompletion(int status) {
+            // SQL 이 실패해 post 이벤트가 오지 않았으면 표시가 남아 있다.
+            endEntityWrite();
+            memberCountCache.invalidateAll();
+            if (bulk && status == STATUS_COMMITTED) {
+                eventPublisher.publishEvent(new MemberBulkChangedEvent("execute", -1));
+            }
+        }
+    }
+
+    static boolean isMemberWrite(String statement) {
+        return touches(statement, "insert into ") || touches(statement, "update ") || touches(statement, "delete from ");
+    }
+
+    private static boolean touches(String statement, String verb) {
+        if (!statement.startsWith(verb)) {
+            return false;
+        }
+        return isTable(statement, verb.length(), "member") || isTable(statement, verb.length(), "team");
+    }
+
+    private static boolean isTable(String statement, int offset, String table) {
+        if (!statement.startsWith(table, offset)) {
+            return false;
+        }
+        int end = offset + table.length();
+        return end == statement.length() || !Character.isJavaIdentifierPart(statement.charAt(end));
+    }
+
+    // use_sql_comments 를 켜면 앞에 /* ... */ 주석이 붙는다.
+    private static String stripComment(String sql) {
+        String trimmed = sql.trim();
+        while (trimmed.startsWith("/*")) {
+            int end = trimmed.indexOf("*/");
+            if (end < 0) {
+                break;
+            }
+            trimmed = trimmed.substring(end + 2).trim();
+        }
+        return trimmed;
+    }
+}
@@ -0,0 +1,14 @@
+package study.querydsl.listener;
+
+import lombok.Value;
+
+/**
+ * Team 엔티티 변경이 커밋된 뒤 발행된다. 이름은 INSERT 면 nameBefore, DELETE 면 nameAfter 가 null 이다.
+ * */
+@Value
+public class TeamChangedEvent {
+    ChangeType type;
+    Long teamId;
+    String nameBefore;
+    String nameAfter;
+}
@@ -0,0 +1,13 @@
+package study.querydsl.repository;
+
+import lombok.Value;
+
+/**
+ * 벌크 update / delete 가 끝난 뒤, 그리고 대량 적재(operation = import / load)가 끝난 뒤 발행된다.
+ * 엔티티 이벤트를 거치지 않으므로, 메모리에 member 데이터를 들고 있는 쪽은 이 이벤트로 다시 맞춰야 한다.
+ * */
+@Value
+public class MemberBulkChangedEvent {
+    String operation;
+    long affectedRows;
+}
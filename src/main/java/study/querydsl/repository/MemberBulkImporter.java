@@ -0,0 +1,217 @@
+package study.querydsl.repository;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberImportResult;
+import study.querydsl.dto.MemberImportRow;
+import study.querydsl.listener.ChangeType;
+import study.querydsl.listener.TeamChangedEvent;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NDJSON 으로 들어오는 member 를 대량으로 넣는다.
+ *
+ * - MappingIterator 로 한 줄씩 읽고 chunk-size 만큼만 모아 두므로 입력 크기와 관계없이 메모리가 일정하다.
+ * - chunk 마다 커밋하고, 그 안에서 hibernate.jdbc.batch_size 단위로 flush / clear 한다. (MemberDataLoader 와 같은 방식)
+ * - 팀 이름 -> id 는 메모리에 캐시한다. 없는 팀은 별도 트랜잭션으로 한 번만 만든다.
+ *   (chunk 가 롤백되어도 캐시의 팀 id 는 유효하다)
+ * - chunk 가 각자 커밋되므로 실패하면 그 앞 chunk 까지는 남는다.
+ * - 엔티티마다 커밋 후 이벤트를 내지 않는다. 대신 마지막 chunk 뒤에 (실패해도 앞 chunk 가 커밋됐으면) MemberBulkChangedEvent 를 한 번 발행한다.
+ *   구독자는 이벤트마다 전체를 다시 읽으므로 chunk 마다 내면 적재 스레드가 테이블 전체를 여러 번 다시 읽는다.
+ *   적재 중에는 메모리 조회 경로가 앞 chunk 를 보지 못할 수 있다.
+ * - 형식이 틀리거나 username / age 가 없는 줄은 줄 번호와 함께 IllegalArgumentException 으로 알린다.
+ *   그 줄이 든 chunk 는 넣지 않는다.
+ * */
+@Slf4j
+@Component
+public class MemberBulkImporter {
+
+    public static final String OPERATION = "import";
+
+    // chunk 트랜잭션 동안 MemberPostCommitListener 가 엔티티마다 이벤트를 내지 않게 한다.
+    private static final ThreadLocal<Boolean> RUNNING = ThreadLocal.withInitial(() -> false);
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate teamTransactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectReader rowReader;
+    private final int chunkSize;
+    private final int flushSize;
+
+    private final Map<String, Long> teamIds = new ConcurrentHashMap<>();
+
+    public MemberBulkImporter(EntityManager entityManager,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${member.import.chunk-size:10000}") int chunkSize,
+                              @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int flushSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.teamTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.teamTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.rowReader = objectMapper.readerFor(MemberImportRow.class);
+        this.chunkSize = chunkSize;
+        this.flushSize = flushSize;
+    }
+
+    public MemberImportResult importNdjson(InputStream in) throws IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        long[] teamsCreated = {0};
+
+        try (MappingIterator<MemberImportRow> iterator = rowReader.readValues(in)) {
+            List<MemberImportRow> chunk = new ArrayList<>(chunkSize);
+            while (iterator.hasNextValue()) {
+                chunk.add(nextRow(iterator));
+                if (chunk.size() == chunkSize || !iterator.hasNextValue()) {
+                    // 팀은 chunk 트랜잭션 밖에서 먼저 확정한다.
+                    List<Long> chunkTeamIds = new ArrayList<>(chunk.size());
+                    for (MemberImportRow row : chunk) {
+                        chunkTeamIds.add(teamId(row.getTeamName(), teamsCreated));
+                    }
+                    RUNNING.set(true);
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> persistMembers(chunk, chunkTeamIds));
+                    } finally {
+                        RUNNING.remove();
+                    }
+                    rows += chunk.size();
+                    chunk.clear();
+
+                    if (rows % (chunkSize * 100L) == 0) {
+                        log.info("member import: {} rows, {} rows/sec", rows, rowsPerSecond(rows, start));
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw invalidLine(e.getLocation(), e.getOriginalMessage());
+        } finally {
+            if (rows > 0) {
+                // team.members 컬렉션을 거치지 않고 넣었으므로 컬렉션 캐시를 비운다.
+                entityManager.getEntityManagerFactory().getCache()
+                        .unwrap(org.hibernate.Cache.class)
+                        .evictCollectionData(Team.class.getName() + ".members");
+                // 도중에 실패해도 앞서 커밋된 chunk 는 반영되어 있다.
+                eventPublisher.publishEvent(new MemberBulkChangedEvent(OPERATION, rows));
+            }
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        log.info("member import finished: {} rows, {} teams created in {} ms ({} rows/sec)",
+                rows, teamsCreated[0], millis, rowsPerSecond(rows, start));
+        return new MemberImportResult(rows, teamsCreated[0], millis, rowsPerSecond(rows, start));
+    }
+
+    public static boolean isRunning() {
+        return RUNNING.get();
+    }
+
+    private static MemberImportRow nextRow(MappingIterator<MemberImportRow> iterator) throws IOException {
+        MemberImportRow row = iterator.nextValue();
+        if (!StringUtils.hasText(row.getUsername())) {
+            throw invalidLine(iterator.getCurrentLocation(), "username 이 없습니다.");
+        }
+        if (row.getAge() == null || row.getAge() < 0) {
+            throw invalidLine(iterator.getCurrentLocation(), "age 가 없거나 음수입니다.");
+        }
+        return row;
+    }
+
+    private static IllegalArgumentException invalidLine(JsonLocation location, String message) {
+        return new IllegalArgumentException("line " + (location != null ? location.getLineNr() : "?") + ": " + message);
+    }
+
+    private void persistMembers(List<MemberImportRow> chunk, List<Long> chunkTeamIds) {
+        for (int i = 0; i < chunk.size(); i++) {
+            MemberImportRow row = chunk.get(i);
+            Member member = new Member(row.getUsername(), row.getAge());
+            Long teamId = chunkTeamIds.get(i);
+            // 생성자로 팀을 넣으면 team.members 컬렉션을 초기화하므로 참조만 연결한다.
+            if (teamId != null) {
+                member.setTeam(entityManager.getReference(Team.class, teamId));
+            }
+            entityManager.persist(member);
+            if ((i + 1) % flushSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+    }
+
+    private Long teamId(String teamName, long[] teamsCreated) {
+        if (teamName == null) {
+            return null;
+        }
+        Long teamId = teamIds.get(teamName);
+        return teamId != null ? teamId : resolveTeam(teamName, teamsCreated);
+    }
+
+    // 같은 이름의 팀을 두 요청이 동시에 만들지 않도록 직렬화한다. 캐시 미스에서만 들어온다.
+    private synchronized Long resolveTeam(String teamName, long[] teamsCreated) {
+        Long cached = teamIds.get(teamName);
+        if (cached != null) {
+            return cached;
+        }
+        Long teamId = teamTransactionTemplate.execute(status -> {
+            List<Long> found = entityManager
+                    .createQuery("select t.id from Team t where t.name = :name order by t.id", Long.class)
+                    .setParameter("name", teamName)
+                    .setMaxResults(1)
+                    .getResultList();
+            if (!found.isEmpty()) {
+                return found.get(0);
+            }
+            Team team = new Team(teamName);
+            entityManager.persist(team);
+            teamsCreated[0]++;
+            return team.getId();
+        });
+        teamIds.put(teamName, teamId);
+        return teamId;
+    }
+
+    @EventListener
+    public void onTeamChanged(TeamChangedEvent event) {
+        if (event.getType() != ChangeType.INSERT) {
+            teamIds.values().remove(event.getTeamId());
+        }
+    }
+
+    // 적재 중에 낸 이벤트로는 팀이 바뀌지 않는다.
+    @EventListener
+    public void onBulkChanged(MemberBulkChangedEvent event) {
+        if (OPERATION.equals(event.getOperation())) {
+            return;
+        }
+        teamIds.clear();
+    }
+
+    private static long rowsPerSecond(long rows, long startNanos) {
+        long elapsed = Math.max(1, System.nanoTime() - startNanos);
+        return rows * 1_000_000_000L / elapsed;
+    }
+}
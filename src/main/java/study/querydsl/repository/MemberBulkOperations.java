@@ -0,0 +1,144 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.domain.Team;
+
+import javax.persistence.EntityManager;
+import java.util.function.Function;
+
+import static study.querydsl.QMember.member;
+import static study.querydsl.repository.MemberSearchPredicates.*;
+
+/**
+ * MemberSearchCondition 에 맞는 member 를 id 범위 단위로 나눠 벌크 update / delete 한다.
+ *
+ * - chunk 마다 별도 트랜잭션으로 커밋해서 락과 undo 로그가 길게 유지되지 않는다.
+ * - 2차 캐시는 Hibernate 가 벌크 HQL 실행 시 member 영역과 Team.members 영역을 비운다.
+ * - chunk 가 각자 커밋되므로 바깥 트랜잭션 안에서는 호출할 수 없다.
+ *   (바깥 영속성 컨텍스트가 낡은 엔티티를 들고 있거나 같은 행의 락을 기다리게 된다)
+ * */
+@Slf4j
+@Component
+public class MemberBulkOperations {
+
+    // 실행 중인 스레드의 chunk 커밋마다 SqlStatementInspector 가 이벤트를 따로 내지 않게 한다.
+    private static final ThreadLocal<Boolean> RUNNING = ThreadLocal.withInitial(() -> false);
+
+    private final EntityManager entityManager;
+    private final JPAQueryFactory jpaQueryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long chunkSize;
+
+    public MemberBulkOperations(EntityManager entityManager,
+                                JPAQueryFactory jpaQueryFactory,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${member.bulk.chunk-size:10000}") long chunkSize) {
+        this.entityManager = entityManager;
+        this.jpaQueryFactory = jpaQueryFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    public long addAge(MemberSearchCondition condition, int delta) {
+        return execute("addAge", condition, where -> jpaQueryFactory
+                .update(member)
+                .set(member.age, member.age.add(delta))
+                .where(where)
+                .execute());
+    }
+
+    public long changeTeam(MemberSearchCondition condition, Long teamId) {
+        return execute("changeTeam", condition, where -> jpaQueryFactory
+                .update(member)
+                .set(member.team, teamId != null ? entityManager.getReference(Team.class, teamId) : null)
+                .where(where)
+                .execute());
+    }
+
+    public long delete(MemberSearchCondition condition) {
+        return execute("delete", condition, where -> jpaQueryFactory
+                .delete(member)
+                .where(where)
+                .execute());
+    }
+
+    public static boolean isRunning() {
+        return RUNNING.get();
+    }
+
+    private long execute(String operation, MemberSearchCondition condition, Function<Predicate[], Long> statement) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("member bulk " + operation + " 는 트랜잭션 밖에서 호출해야 합니다.");
+        }
+
+        BooleanExpression[] predicates = {
+                teamNameIn(condition.getTeamName()),
+                usernameEq(condition.getUsername()),
+                ageGoe(condition.getGoe()),
+                ageLoe(condition.getLoe())
+        };
+
+        Tuple range = jpaQueryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .where(predicates)
+                .fetchOne();
+        Long minId = range != null ? range.get(member.id.min()) : null;
+        Long maxId = range != null ? range.get(member.id.max()) : null;
+        if (minId == null || maxId == null) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        long affected = 0;
+        long chunks = 0;
+        RUNNING.set(true);
+        try {
+            for (long from = minId; from <= maxId; from += chunkSize) {
+                long to = Math.min(maxId, from + chunkSize - 1);
+                Predicate[] where = {
+                        predicates[0], predicates[1], predicates[2], predicates[3],
+                        member.id.between(from, to)
+                };
+                affected += transactionTemplate.execute(status -> statement.apply(where));
+                chunks++;
+
+                if (chunks % 10 == 0) {
+                    log.info("member bulk {}: id {} / {}, {} rows, {} rows/sec",
+                            operation, to, maxId, affected, rowsPerSecond(affected, start));
+                }
+            }
+        } finally {
+            RUNNING.remove();
+            // 도중에 실패해도 앞서 커밋된 chunk 는 반영되어 있다.
+            if (affected > 0) {
+                eventPublisher.publishEvent(new MemberBulkChangedEvent(operation, affected));
+            }
+        }
+
+        log.info("member bulk {} finished: {} rows in {} chunks, {} ms ({} rows/sec)",
+                operation, affected, chunks, (System.nanoTime() - start) / 1_000_000, rowsPerSecond(affected, start));
+        return affected;
+    }
+
+    private static long rowsPerSecond(long rows, long start) {
+        long elapsed = System.nanoTime() - start;
+        return elapsed > 0 ? rows * 1_000_000_000L / elapsed : rows;
+    }
+}
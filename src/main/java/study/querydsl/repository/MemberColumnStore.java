@@ -0,0 +1,202 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.listener.ChangeType;
+import study.querydsl.listener.MemberChangedEvent;
+import study.querydsl.listener.MemberSnapshot;
+import study.querydsl.listener.SqlStatementInspector;
+import study.querydsl.listener.TeamChangedEvent;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * search / pagingSimple / pagingComplex 를 DB 없이 답하는 읽기 모델. member.read-model.enabled=true 일 때만 만든다.
+ *
+ * - 기동이 끝나면 DB 에서 한 번 적재하고, 이후에는 커밋된 엔티티 변경 이벤트로 한 행씩 맞춘다.
+ * - 벌크 연산 뒤에는 다시 적재한다. 적재하는 동안 들어온 변경은 새 데이터에 다시 적용한다.
+ * - 준비되지 않았거나 쓰기 트랜잭션 안에서 호출되면 JPA 쪽으로 돌려보낸다. (커밋 전 변경을 볼 수 없으므로)
+ * - 변경 이벤트는 MemberSearchResultCache 보다 먼저 받는다. 캐시가 비운 뒤에 채워지는 결과가 이 읽기 모델에서 올 수 있다.
+ * */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "member.read-model", name = "enabled", havingValue = "true")
+public class MemberColumnStore implements MeterBinder {
+
+    // MemberSearchResultCache 는 EVENT_ORDER + 1, MemberDataVersion 은 그 뒤다.
+    static final int EVENT_ORDER = Ordered.LOWEST_PRECEDENCE - 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+
+    private MemberColumns columns = new MemberColumns(0);
+    // 다시 적재하는 동안의 변경. 새 데이터에 다시 적용한다.
+    private List<Consumer<MemberColumns>> pending;
+    private volatile boolean ready;
+
+    private Counter served;
+    private Counter fallback;
+
+    public MemberColumnStore(DataSource dataSource,
+                             @Value("${member.stream.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * 이 스레드의 조회를 읽기 모델로 답할 수 있는지. false 면 호출하는 쪽이 JPA 로 조회한다.
+     * */
+    public boolean canServe() {
+        boolean canServe = ready && !SqlStatementInspector.isInWriteTransaction();
+        if (served != null) {
+            (canServe ? served : fallback).increment();
+        }
+        return canServe;
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition, long offset, long limit) {
+        List<MemberTeamDto> result = new ArrayList<>((int) Math.min(limit, 1000));
+        lock.readLock().lock();
+        try {
+            columns.scan(condition, offset, limit, result::add);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public long count(MemberSearchCondition condition) {
+        lock.readLock().lock();
+        try {
+            return columns.count(condition);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        rebuild();
+    }
+
+    @EventListener
+    @Order(EVENT_ORDER)
+    public void onBulkChanged(MemberBulkChangedEvent event) {
+        rebuild();
+    }
+
+    @EventListener
+    @Order(EVENT_ORDER)
+    public void onMemberChanged(MemberChangedEvent event) {
+        long id = event.getMemberId();
+        if (event.getType() == ChangeType.DELETE) {
+            apply(columns -> columns.removeMember(id));
+            return;
+        }
+        MemberSnapshot after = event.getAfter();
+        apply(columns -> columns.putMember(id, after.getUsername(), after.getAge(), after.getTeamId()));
+    }
+
+    @EventListener
+    @Order(EVENT_ORDER)
+    public void onTeamChanged(TeamChangedEvent event) {
+        long id = event.getTeamId();
+        if (event.getType() == ChangeType.DELETE) {
+            apply(columns -> columns.removeTeam(id));
+            return;
+        }
+        String name = event.getNameAfter();
+        apply(columns -> columns.putTeam(id, name));
+    }
+
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                ready = false;
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            long start = System.nanoTime();
+            MemberColumns loaded = load();
+
+            lock.writeLock().lock();
+            try {
+                // 적재한 스냅샷보다 먼저 반영된 변경도 다시 적용하지만, id 기준 덮어쓰기라 결과는 같다.
+                for (Consumer<MemberColumns> change : pending) {
+                    change.accept(loaded);
+                }
+                columns = loaded;
+                pending = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("member read model loaded: {} rows in {} ms", loaded.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private MemberColumns load() {
+        Long rows = jdbcTemplate.queryForObject("select count(*) from member", Long.class);
+        MemberColumns loaded = new MemberColumns(rows != null ? rows.intValue() : 0);
+        jdbcTemplate.query("select id, name from team",
+                rs -> {
+                    loaded.putTeam(rs.getLong(1), rs.getString(2));
+                });
+        jdbcTemplate.query("select id, username, age, team_id from member order by id",
+                rs -> {
+                    long teamId = rs.getLong(4);
+                    loaded.putMember(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.wasNull() ? null : teamId);
+                });
+        return loaded;
+    }
+
+    private void apply(Consumer<MemberColumns> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(columns);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // member.read-model.queries{result=served|fallback}, member.read-model.rows
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        served = Counter.builder("member.read-model.queries").tag("result", "served").register(registry);
+        fallback = Counter.builder("member.read-model.queries").tag("result", "fallback").register(registry);
+        Gauge.builder("member.read-model.rows", this, MemberColumnStore::rows).register(registry);
+    }
+
+    private double rows() {
+        lock.readLock().lock();
+        try {
+            return columns.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * MemberExporter 가 쓰는 컬럼 파일 포맷. 정수는 모두 big-endian
+ *
+ * header   : magic "MBRC"(int), version(int), footer offset(long)
+ * row group: rows(int), id(long[rows]), age(int[rows]), team id(long[rows], 0 은 팀 없음),
+ *            dictionary size(int), dictionary(int 길이 + UTF-8 바이트 ...), username code(int[rows], -1 은 null)
+ * footer   : row group 수(int), (offset(long), length(int), rows(int)) ...,
+ *            team 수(int), (team id(long), int 길이 + UTF-8 이름, 길이 -1 은 null) ...
+ *
+ * row group 은 id 범위 하나이고 파일 안의 순서는 보장하지 않는다. footer 는 id 순서로 적는다.
+ * */
+public final class MemberColumnarFile {
+
+    public static final int MAGIC = 0x4D425243;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+
+    private MemberColumnarFile() {
+    }
+
+    /**
+     * 파일 전체를 id 순서로 읽는다. row group 하나씩만 매핑한다.
+     * */
+    public static long read(Path path, Consumer<MemberTeamDto> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("not a member columnar file: " + path);
+            }
+            long footerOffset = header.getLong();
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, footerOffset, channel.size() - footerOffset);
+
+            int groupCount = footer.getInt();
+            long[] offsets = new long[groupCount];
+            int[] lengths = new int[groupCount];
+            for (int i = 0; i < groupCount; i++) {
+                offsets[i] = footer.getLong();
+                lengths[i] = footer.getInt();
+                footer.getInt();
+            }
+            Map<Long, String> teamNames = new HashMap<>();
+            int teamCount = footer.getInt();
+            for (int i = 0; i < teamCount; i++) {
+                teamNames.put(footer.getLong(), getNullableString(footer));
+            }
+
+            long rows = 0;
+            for (int i = 0; i < groupCount; i++) {
+                rows += readRowGroup(channel.map(FileChannel.MapMode.READ_ONLY, offsets[i], lengths[i]), teamNames, consumer);
+            }
+            return rows;
+        }
+    }
+
+    static void writeFooter(FileChannel channel, long footerOffset, List<RowGroup> groups, Map<Long, String> teamNames) throws IOException {
+        List<byte[]> names = new ArrayList<>(teamNames.size());
+        int size = 4 + groups.size() * 16 + 4;
+        for (String name : teamNames.values()) {
+            byte[] bytes = name != null ? name.getBytes(StandardCharsets.UTF_8) : null;
+            names.add(bytes);
+            size += 8 + 4 + (bytes != null ? bytes.length : 0);
+        }
+
+        ByteBuffer footer = ByteBuffer.allocate(size);
+        footer.putInt(groups.size());
+        for (RowGroup group : groups) {
+            footer.putLong(group.offset).putInt(group.length).putInt(group.rows);
+        }
+        footer.putInt(teamNames.size());
+        int i = 0;
+        for (Long teamId : teamNames.keySet()) {
+            byte[] bytes = names.get(i++);
+            footer.putLong(teamId);
+            if (bytes == null) {
+                footer.putInt(-1);
+            } else {
+                footer.putInt(bytes.length).put(bytes);
+            }
+        }
+        footer.flip();
+        writeFully(channel, footer, footerOffset);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(footerOffset).flip();
+        writeFully(channel, header, 0);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static int readRowGroup(MappedByteBuffer buffer, Map<Long, String> teamNames, Consumer<MemberTeamDto> consumer) {
+        int rows = buffer.getInt();
+        long[] ids = new long[rows];
+        int[] ages = new int[rows];
+        long[] teamIds = new long[rows];
+        buffer.asLongBuffer().get(ids);
+        buffer.position(buffer.position() + rows * 8);
+        buffer.asIntBuffer().get(ages);
+        buffer.position(buffer.position() + rows * 4);
+        buffer.asLongBuffer().get(teamIds);
+        buffer.position(buffer.position() + rows * 8);
+
+        String[] dictionary = new String[buffer.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = getString(buffer);
+        }
+
+        for (int i = 0; i < rows; i++) {
+            int code = buffer.getInt();
+            Long teamId = teamIds[i] != 0 ? teamIds[i] : null;
+            consumer.accept(new MemberTeamDto(ids[i], code >= 0 ? dictionary[code] : null, ages[i], teamId, teamId != null ? teamNames.get(teamId) : null));
+        }
+        return rows;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 길이 -1 은 null
+    private static String getNullableString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 파일에 쓴 row group 의 위치
+     * */
+    static final class RowGroup {
+        final long offset;
+        final int length;
+        final int rows;
+
+        RowGroup(long offset, int length, int rows) {
+            this.offset = offset;
+            this.length = length;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * id 범위 하나를 컬럼 배열로 모은다. 스레드 하나가 쓴다.
+     * */
+    static final class RowGroupWriter {
+        private long[] ids = new long[1024];
+        private int[] ages = new int[1024];
+        private long[] teamIds = new long[1024];
+        private int[] codes = new int[1024];
+        private int rows;
+
+        private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+        private final List<byte[]> dictionaryBytes = new ArrayList<>();
+        private int dictionarySize = 4;
+
+        void add(long id, String username, int age, Long teamId) {
+            if (rows == ids.length) {
+                int capacity = rows * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamIds = Arrays.copyOf(teamIds, capacity);
+                codes = Arrays.copyOf(codes, capacity);
+            }
+            ids[rows] = id;
+            ages[rows] = age;
+            teamIds[rows] = teamId != null ? teamId : 0L;
+            codes[rows] = username != null ? code(username) : -1;
+            rows++;
+        }
+
+        int rows() {
+            return rows;
+        }
+
+        int size() {
+            return 4 + rows * (8 + 4 + 8 + 4) + dictionarySize;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putInt(rows);
+            buffer.asLongBuffer().put(ids, 0, rows);
+            buffer.position(buffer.position() + rows * 8);
+            buffer.asIntBuffer().put(ages, 0, rows);
+            buffer.position(buffer.position() + rows * 4);
+            buffer.asLongBuffer().put(teamIds, 0, rows);
+            buffer.position(buffer.position() + rows * 8);
+
+            buffer.putInt(dictionaryBytes.size());
+            for (byte[] bytes : dictionaryBytes) {
+                buffer.putInt(bytes.length).put(bytes);
+            }
+            buffer.asIntBuffer().put(codes, 0, rows);
+            buffer.position(buffer.position() + rows * 4);
+        }
+
+        private int code(String username) {
+            Integer code = dictionary.get(username);
+            if (code == null) {
+                code = dictionaryBytes.size();
+                byte[] bytes = username.getBytes(StandardCharsets.UTF_8);
+                dictionary.put(username, code);
+                dictionaryBytes.add(bytes);
+                dictionarySize += 4 + bytes.length;
+            }
+            return code;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package study.querydsl.repository;
+
+import org.springframework.util.StringUtils;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * member 를 컬럼별 배열로 들고 있는 저장소. 스레드 안전하지 않으며 MemberColumnStore 가 락으로 감싼다.
+ *
+ * - id, age, team id 는 long[] / int[] 에 둔다. team id 가 없으면 0 이다. (시퀀스는 1부터)
+ * - username 은 사전 번호(int)로 바꿔 두어 같은 이름 비교가 int 비교가 된다. null 은 NULL_USERNAME 으로 따로 둔다.
+ * - 행은 id 순서로 둔다. offset 으로 자르는 페이지가 변경 사이에 행을 건너뛰거나 반복하지 않게 한다.
+ *   삭제는 자리를 비워 두기만 하고(REMOVED), 빈 자리가 절반을 넘으면 한 번에 당긴다.
+ *   새 id 는 보통 가장 크므로 뒤에 붙는다. 커밋 순서가 뒤바뀐 id 만 자리를 찾아 뒤를 민다.
+ * */
+class MemberColumns {
+
+    private static final int NO_TEAM = 0;
+    private static final int NO_MATCH = -1;
+    private static final int ANY = -2;
+    // username 코드. null 은 0 번이고 사전(usernameCodes)에는 넣지 않아 어떤 검색어와도 같지 않다.
+    private static final int NULL_USERNAME = 0;
+    // 삭제된 자리의 username 코드
+    private static final int REMOVED = -3;
+    private static final int MIN_COMPACT = 1024;
+
+    private long[] ids;
+    private int[] ages;
+    private long[] teamIds;
+    private int[] usernames;
+    // 빈 자리를 포함한 행 수
+    private int size;
+    private int removed;
+
+    private final LongIntMap positions;
+    private final Map<String, Integer> usernameCodes = new HashMap<>();
+    private final List<String> usernameValues = new ArrayList<>();
+    private final Map<Long, String> teamNames = new HashMap<>();
+
+    MemberColumns(int capacity) {
+        int initial = Math.max(16, capacity);
+        ids = new long[initial];
+        ages = new int[initial];
+        teamIds = new long[initial];
+        usernames = new int[initial];
+        positions = new LongIntMap(initial);
+        usernameValues.add(null);
+    }
+
+    int size() {
+        return size - removed;
+    }
+
+    void putMember(long id, String username, int age, Long teamId) {
+        int position = positions.get(id);
+        if (position < 0) {
+            position = insertPosition(id);
+            positions.put(id, position);
+        }
+        ids[position] = id;
+        ages[position] = age;
+        teamIds[position] = teamId != null ? teamId : NO_TEAM;
+        usernames[position] = encode(username);
+    }
+
+    void removeMember(long id) {
+        int position = positions.remove(id);
+        if (position < 0) {
+            return;
+        }
+        usernames[position] = REMOVED;
+        removed++;
+        if (removed >= MIN_COMPACT && removed * 2 > size) {
+            compact();
+        }
+    }
+
+    // id 순서를 지키는 자리. 같은 id 의 빈 자리가 있으면 다시 쓴다.
+    private int insertPosition(long id) {
+        if (size == 0 || ids[size - 1] < id) {
+            ensureCapacity(size + 1);
+            return size++;
+        }
+        int found = Arrays.binarySearch(ids, 0, size, id);
+        if (found >= 0) {
+            removed--;
+            return found;
+        }
+        int position = -found - 1;
+        ensureCapacity(size + 1);
+        int moved = size - position;
+        System.arraycopy(ids, position, ids, position + 1, moved);
+        System.arraycopy(ages, position, ages, position + 1, moved);
+        System.arraycopy(teamIds, position, teamIds, position + 1, moved);
+        System.arraycopy(usernames, position, usernames, position + 1, moved);
+        size++;
+        for (int i = position + 1; i < size; i++) {
+            if (usernames[i] != REMOVED) {
+                positions.put(ids[i], i);
+            }
+        }
+        return position;
+    }
+
+    private void compact() {
+        int to = 0;
+        for (int from = 0; from < size; from++) {
+            if (usernames[from] == REMOVED) {
+                continue;
+            }
+            if (to != from) {
+                ids[to] = ids[from];
+                ages[to] = ages[from];
+                teamIds[to] = teamIds[from];
+                usernames[to] = usernames[from];
+                positions.put(ids[to], to);
+            }
+            to++;
+        }
+        size = to;
+        removed = 0;
+    }
+
+    void putTeam(long id, String name) {
+        teamNames.put(id, name);
+    }
+
+    // 팀이 지워지면 FK 때문에 소속 멤버도 이미 없거나 다른 팀으로 옮겨져 있다.
+    void removeTeam(long id) {
+        teamNames.remove(id);
+    }
+
+    /**
+     * 조건에 맞는 행을 offset 개 건너뛰고 limit 개까지 넘긴다.
+     * */
+    void scan(MemberSearchCondition condition, long offset, long limit, Consumer<MemberTeamDto> consumer) {
+        Filter filter = filter(condition);
+        if (filter == null || limit <= 0) {
+            return;
+        }
+        long skipped = 0;
+        long emitted = 0;
+        for (int i = 0; i < size && emitted < limit; i++) {
+            if (!filter.matches(i)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            long teamId = teamIds[i];
+            consumer.accept(new MemberTeamDto(ids[i], usernameValues.get(usernames[i]), ages[i],
+                    teamId != NO_TEAM ? teamId : null, teamId != NO_TEAM ? teamNames.get(teamId) : null));
+            emitted++;
+        }
+    }
+
+    long count(MemberSearchCondition condition) {
+        Filter filter = filter(condition);
+        if (filter == null) {
+            return 0;
+        }
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.matches(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 결과가 없을 것이 확실하면 null
+    private Filter filter(MemberSearchCondition condition) {
+        int usernameCode = ANY;
+        if (StringUtils.hasText(condition.getUsername())) {
+            usernameCode = usernameCodes.getOrDefault(condition.getUsername(), NO_MATCH);
+            if (usernameCode == NO_MATCH) {
+                return null;
+            }
+        }
+        long[] teams = null;
+        if (StringUtils.hasText(condition.getTeamName())) {
+            teams = teamIdsNamed(condition.getTeamName());
+            if (teams.length == 0) {
+                return null;
+            }
+        }
+        int goe = condition.getGoe() != null ? condition.getGoe() : Integer.MIN_VALUE;
+        int loe = condition.getLoe() != null ? condition.getLoe() : Integer.MAX_VALUE;
+        return new Filter(usernameCode, teams, goe, loe);
+    }
+
+    // 팀 수만큼만 본다.
+    private long[] teamIdsNamed(String name) {
+        long[] matched = new long[0];
+        for (Map.Entry<Long, String> team : teamNames.entrySet()) {
+            if (name.equals(team.getValue())) {
+                matched = Arrays.copyOf(matched, matched.length + 1);
+                matched[matched.length - 1] = team.getKey();
+            }
+        }
+        return matched;
+    }
+
+    private int encode(String username) {
+        if (username == null) {
+            return NULL_USERNAME;
+        }
+        Integer code = usernameCodes.get(username);
+        if (code == null) {
+            code = usernameValues.size();
+            usernameValues.add(username);
+            usernameCodes.put(username, code);
+        }
+        return code;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+        teamIds = Arrays.copyOf(teamIds, capacity);
+        usernames = Arrays.copyOf(usernames, capacity);
+    }
+
+    private class Filter {
+        private final int usernameCode;
+        private final long[] teams;
+        private final int goe;
+        private final int loe;
+
+        Filter(int usernameCode, long[] teams, int goe, int loe) {
+            this.usernameCode = usernameCode;
+            this.teams = teams;
+            this.goe = goe;
+            this.loe = loe;
+        }
+
+        boolean matches(int i) {
+            if (usernames[i] == REMOVED) {
+                return false;
+            }
+            int age = ages[i];
+            if (age < goe || age > loe) {
+                return false;
+            }
+            if (usernameCode != ANY && usernames[i] != usernameCode) {
+                return false;
+            }
+            if (teams == null) {
+                return true;
+            }
+            long teamId = teamIds[i];
+            for (long team : teams) {
+                if (team == teamId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * id -> 행 위치. 박싱 없이 쓰려고 만든 open addressing 맵. id 0 은 빈 칸을 뜻한다.
+     * */
+    static final class LongIntMap {
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+        // 없으면 -1
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        // 지운 값, 없으면 -1
+        int remove(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != key) {
+                if (keys[slot] == 0) {
+                    return -1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            int removed = values[slot];
+            size--;
+            // 뒤따르는 항목을 앞으로 당겨 탐색 사슬이 끊기지 않게 한다.
+            int gap = slot;
+            for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = 0;
+            return removed;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
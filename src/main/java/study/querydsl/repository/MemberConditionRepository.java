@@ -2,14 +2,34 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import study.querydsl.MemberSearchCondition;
+import study.querydsl.domain.Member;
+import study.querydsl.dto.MemberSeekCursor;
+import study.querydsl.dto.MemberSeekPage;
 import study.querydsl.dto.MemberTeamDto;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MemberConditionRepository {
     List<MemberTeamDto> search(MemberSearchCondition condition);
 
     Page<MemberTeamDto> pagingSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> pagingComplex(MemberSearchCondition condition, Pageable pageable);
+
+    // count 없이 pageSize + 1 건을 읽어 다음 페이지 여부만 알려준다.
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+
+    MemberSeekPage pagingSeek(MemberSearchCondition condition, MemberSeekCursor cursor, int size);
+
+    List<Member> findAllByIds(Collection<Long> ids);
+
+    void searchStream(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> consumer);
+
+    // 조건에 맞는 member 를 id 범위로 나눠 chunk 마다 커밋한다. 트랜잭션 밖에서 호출해야 한다.
+    long bulkAddAge(MemberSearchCondition condition, int delta);
+    long bulkChangeTeam(MemberSearchCondition condition, Long teamId);
+    long bulkDelete(MemberSearchCondition condition);
 }
@@ -1,74 +1,131 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.HQLTemplates;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.support.PageableExecutionUtils;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.MemberSearchCondition;
 import study.querydsl.QMemberTeamDto;
 import study.querydsl.domain.Member;
+import study.querydsl.dto.MemberSeekCursor;
+import study.querydsl.dto.MemberSeekPage;
 import study.querydsl.dto.MemberTeamDto;
 
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static study.querydsl.QMember.member;
 import static study.querydsl.QTeam.team;
+import static study.querydsl.repository.MemberSearchPredicates.*;
 
 
+/**
+ * 조회 메서드는 readOnly 트랜잭션으로 연다. member.replica.enabled=true 이면 replica 로 라우팅되고,
+ * Hibernate 세션은 FlushMode.MANUAL + 기본 읽기 전용이 되어 dirty checking 스냅샷을 남기지 않는다. (HibernateJpaDialect)
+ * 이미 쓰기 트랜잭션 안에서 호출되면 그 트랜잭션에 참여하므로 primary 에서 자기가 쓴 값을 읽는다.
+ * */
 @RequiredArgsConstructor
 public class MemberConditionRepositoryImpl implements MemberConditionRepository{
 
+    private final EntityManager entityManager;
     private final JPAQueryFactory jpaQueryFactory;
+    private final MemberPageCounter memberPageCounter;
+    private final MemberSearchQueryTemplates memberSearchQueryTemplates;
+    private final MemberMultiGet memberMultiGet;
+    private final MemberBulkOperations memberBulkOperations;
+    // member.read-model.enabled=true 일 때만 있다.
+    private final ObjectProvider<MemberColumnStore> memberColumnStore;
+    private final MemberSearchResultCache memberSearchResultCache;
+    private final MemberTotalEstimator memberTotalEstimator;
 
     @Override
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-
-        return jpaQueryFactory
-                .select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, member.team.id.as("teamId"), member.team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        teamNameEq(condition.getTeamName()),
-                        usernameEq(condition.getUsername()),
-                        ageGoe(condition.getGoe()),
-                        ageLoe(condition.getLoe())
-                )
-                .limit(limit(condition.getSize()))
-                .fetch();
+        // 같은 조건의 결과는 커밋된 변경이 닿기 전까지 캐시에서 꺼낸다.
+        return memberSearchResultCache.get(condition, () -> {
+            MemberColumnStore store = columnStore();
+            if (store != null) {
+                return store.search(condition, 0, limit(condition.getSize()));
+            }
+
+            // 조건 모양별로 만들어 둔 JPQL 에 파라미터만 바인딩한다.
+            return memberSearchQueryTemplates.fetch(condition, 0, limit(condition.getSize()));
+        });
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> pagingSimple(MemberSearchCondition condition, Pageable pageable) {
+        MemberColumnStore store = columnStore();
+        if (store != null) {
+            return new PageImpl<>(store.search(condition, pageable.getOffset(), pageable.getPageSize()), pageable, store.count(condition));
+        }
 
-        QueryResults<MemberTeamDto> results = jpaQueryFactory
-                .select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, member.team.id.as("teamId"), member.team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        teamNameEq(condition.getTeamName()),
-                        usernameEq(condition.getUsername()),
-                        ageGoe(condition.getGoe()),
-                        ageLoe(condition.getLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults();
-
-        List<MemberTeamDto> content = results.getResults();
-        long total = results.getTotal();
+        // fetchResults() 와 같이 count 를 먼저 하고, 결과가 없으면 content 쿼리는 생략한다.
+        long total = memberSearchQueryTemplates.count(condition);
+        List<MemberTeamDto> content = total > 0
+                ? memberSearchQueryTemplates.fetch(condition, pageable.getOffset(), pageable.getPageSize())
+                : Collections.emptyList();
 
         return new PageImpl<>(content, pageable, total);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> pagingComplex(MemberSearchCondition condition, Pageable pageable) {
+        MemberColumnStore store = columnStore();
+        if (store != null) {
+            List<MemberTeamDto> content = store.search(condition, pageable.getOffset(), pageable.getPageSize());
+            return PageableExecutionUtils.getPage(content, pageable, () -> store.count(condition));
+        }
+
+        // 근사 total 모드면 전체 count 를 하지 않는다.
+        if (!memberTotalEstimator.isExact()) {
+            List<MemberTeamDto> content = memberSearchQueryTemplates.fetch(condition, pageable.getOffset(), pageable.getPageSize());
+            return PageableExecutionUtils.getPage(content, pageable, () -> memberTotalEstimator.total(condition, pageable));
+        }
+
+        // 설정에 따라 count 를 먼저 띄워 두고 content 를 조회한다. 같은 조건의 count 는 캐시에서 꺼내 쓴다.
+        try (MemberPageCounter.PendingCount count = memberPageCounter.start(condition)) {
+            List<MemberTeamDto> content = memberSearchQueryTemplates.fetch(condition, pageable.getOffset(), pageable.getPageSize());
+
+            return PageableExecutionUtils.getPage(content, pageable, count);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        MemberColumnStore store = columnStore();
+        long limit = pageable.getPageSize() + 1L;
+        List<MemberTeamDto> content = store != null
+                ? store.search(condition, pageable.getOffset(), limit)
+                : memberSearchQueryTemplates.fetch(condition, pageable.getOffset(), limit);
+
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    public MemberSeekPage pagingSeek(MemberSearchCondition condition, MemberSeekCursor cursor, int size) {
+
+        // offset 대신 마지막으로 본 키 이후부터 읽는다. 다음 페이지 존재 여부를 알기 위해 한 건 더 조회
         List<MemberTeamDto> content = jpaQueryFactory
                 .select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, member.team.id.as("teamId"), member.team.name.as("teamName")))
                 .from(member)
@@ -77,44 +134,97 @@ public class MemberConditionRepositoryImpl implements MemberConditionRepository{
                         teamNameEq(condition.getTeamName()),
                         usernameEq(condition.getUsername()),
                         ageGoe(condition.getGoe()),
-                        ageLoe(condition.getLoe())
+                        ageLoe(condition.getLoe()),
+                        afterCursor(cursor)
                 )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+                .orderBy(seekOrder(cursor))
+                .limit(size + 1)
                 .fetch();
 
-        JPAQuery<Member> countQuery = jpaQueryFactory
-                //.select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, member.team.id.as("teamId"), member.team.name.as("teamName")))
-                .select(member)
+        if (content.size() <= size) {
+            return new MemberSeekPage(content, null);
+        }
+
+        List<MemberTeamDto> page = content.subList(0, size);
+        return new MemberSeekPage(page, cursor.next(page.get(size - 1)).encode());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        return memberMultiGet.findAllByIds(ids);
+    }
+
+    @Override
+    public long bulkAddAge(MemberSearchCondition condition, int delta) {
+        return memberBulkOperations.addAge(condition, delta);
+    }
+
+    @Override
+    public long bulkChangeTeam(MemberSearchCondition condition, Long teamId) {
+        return memberBulkOperations.changeTeam(condition, teamId);
+    }
+
+    @Override
+    public long bulkDelete(MemberSearchCondition condition) {
+        return memberBulkOperations.delete(condition);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void searchStream(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> consumer) {
+
+        // HQLTemplates 를 사용해야 iterate() 가 결과를 List 로 모으지 않고 ScrollableResults(FORWARD_ONLY) 로 읽는다.
+        JPAQuery<MemberTeamDto> query = new JPAQuery<Void>(entityManager, HQLTemplates.DEFAULT)
+                .select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, member.team.id.as("teamId"), member.team.name.as("teamName")))
                 .from(member)
-                // .leftJoin(member.team, team)
+                .leftJoin(member.team, team)
                 .where(
                         teamNameEq(condition.getTeamName()),
                         usernameEq(condition.getUsername()),
                         ageGoe(condition.getGoe()),
                         ageLoe(condition.getLoe())
-                );
-
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
-    }
-
-    private long limit(Integer size) {
-        return size != null ? size : 10;
+                )
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize);
+
+        // 내보내기는 size 를 주지 않으면 전부 읽는다.
+        if (condition.getSize() != null) {
+            query.limit(condition.getSize());
+        }
+
+        try (CloseableIterator<MemberTeamDto> iterator = query.iterate()) {
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+            }
+        }
     }
 
-    private BooleanExpression ageLoe(Integer loe) {
-        return loe != null ? member.age.loe(loe) : null;
+    private BooleanExpression afterCursor(MemberSeekCursor cursor) {
+        if (cursor.isFirst()) {
+            return null;
+        }
+        if (cursor.getSortKey() == MemberSeekCursor.SortKey.AGE) {
+            // (age, id) > (lastAge, lastId)
+            return member.age.gt(cursor.getLastAge())
+                    .or(member.age.eq(cursor.getLastAge()).and(member.id.gt(cursor.getLastId())));
+        }
+        return member.id.gt(cursor.getLastId());
     }
 
-    private BooleanExpression ageGoe(Integer goe) {
-        return goe != null ? member.age.goe(goe) : null;
+    private OrderSpecifier<?>[] seekOrder(MemberSeekCursor cursor) {
+        if (cursor.getSortKey() == MemberSeekCursor.SortKey.AGE) {
+            return new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+        }
+        return new OrderSpecifier<?>[]{member.id.asc()};
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    // 읽기 모델로 답할 수 없으면 null
+    private MemberColumnStore columnStore() {
+        MemberColumnStore store = memberColumnStore.getIfAvailable();
+        return store != null && store.canServe() ? store : null;
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? member.team.name.eq(teamName) : null;
+    private long limit(Integer size) {
+        return size != null ? size : 10;
     }
 }
@@ -0,0 +1,87 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.listener.SqlStatementInspector;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * pagingComplex 의 count 쿼리 결과를 검색 조건별로 보관한다.
+ * member / team 테이블에 쓰기가 일어나면 SqlStatementInspector 가 전체를 무효화한다.
+ *
+ * 쓰기 트랜잭션 안에서는 캐시를 거치지 않는다.
+ * 캐시에서 답하면 count 쿼리 전의 auto flush 가 일어나지 않고, 커밋 전 count 를 넣으면 다른 트랜잭션에도 보인다.
+ * */
+@Component
+public class MemberCountCache implements MeterBinder {
+
+    private final Cache<CountKey, Long> cache;
+
+    public MemberCountCache(@Value("${member.count-cache.ttl:30s}") Duration ttl,
+                            @Value("${member.count-cache.maximum-size:10000}") long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    public long get(MemberSearchCondition condition, LongSupplier countQuery) {
+        if (SqlStatementInspector.isInWriteTransaction()) {
+            return countQuery.getAsLong();
+        }
+        return cache.get(CountKey.of(condition), key -> countQuery.getAsLong());
+    }
+
+    // 없거나 쓰기 트랜잭션 안이면 null
+    public Long getIfPresent(MemberSearchCondition condition) {
+        if (SqlStatementInspector.isInWriteTransaction()) {
+            return null;
+        }
+        return cache.getIfPresent(CountKey.of(condition));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // cache.gets{cache=member.count, result=hit|miss} 로 노출된다.
+    // Hibernate 설정 과정에서 만들어지는 빈이므로 MeterRegistry 를 직접 주입받지 않는다.
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "member.count");
+    }
+
+    /**
+     * count 에 영향을 주는 조건만 남긴 키. 빈 문자열은 조건이 없는 것과 같게 취급한다.
+     * */
+    @lombok.Value
+    static class CountKey {
+        String teamName;
+        String username;
+        Integer goe;
+        Integer loe;
+
+        static CountKey of(MemberSearchCondition condition) {
+            return new CountKey(
+                    StringUtils.hasText(condition.getTeamName()) ? condition.getTeamName() : null,
+                    StringUtils.hasText(condition.getUsername()) ? condition.getUsername() : null,
+                    condition.getGoe(),
+                    condition.getLoe());
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * member / team 전체를 파일로 내보낸다.
+ *
+ * id 공간을 range-size 폭의 범위로 나눠 fork-join 풀에서 병렬로 읽는다.
+ * 범위마다 StatelessSession + ScrollableResults(FORWARD_ONLY) 를 쓰므로 영속성 컨텍스트에 엔티티가 쌓이지 않고,
+ * 동시에 메모리에 있는 것은 스레드당 범위 하나 분량이다.
+ *
+ * - COLUMNAR : 범위 하나가 row group 하나. 자리를 예약하고 매핑한 버퍼에 바로 쓴다. (MemberColumnarFile)
+ * - CSV      : 범위마다 임시 파일에 쓰고 id 순서로 이어 붙인다.
+ * */
+@Slf4j
+@Component
+public class MemberExporter {
+
+    public enum Format {
+        COLUMNAR, CSV
+    }
+
+    private static final String RANGE_QUERY =
+            "select m.id, m.username, m.age, t.id, t.name from Member m left join m.team t" +
+            " where m.id between :from and :to order by m.id";
+    private static final String CSV_HEADER = "member_id,username,age,team_id,team_name\n";
+
+    private final SessionFactory sessionFactory;
+    private final int parallelism;
+    private final long rangeSize;
+    private final int fetchSize;
+
+    public MemberExporter(EntityManagerFactory entityManagerFactory,
+                          @Value("${member.export.parallelism:0}") int parallelism,
+                          @Value("${member.export.range-size:65536}") long rangeSize,
+                          @Value("${member.stream.fetch-size:500}") int fetchSize) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.rangeSize = rangeSize;
+        this.fetchSize = fetchSize;
+    }
+
+    public Result export(Path target, Format format) throws IOException {
+        long started = System.nanoTime();
+        List<long[]> ranges = ranges();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long rows = format == Format.COLUMNAR
+                    ? exportColumnar(target, ranges, pool)
+                    : exportCsv(target, ranges, pool);
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            Result result = new Result(target, format, rows, ranges.size(), millis);
+            log.info("member export {} : {} rows, {} ranges, {} ms ({} rows/sec) -> {}",
+                    format, rows, ranges.size(), millis, result.getRowsPerSecond(), target);
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private long exportColumnar(Path target, List<long[]> ranges, ForkJoinPool pool) throws IOException {
+        // 팀 이름은 null 일 수 있어 ConcurrentHashMap 에 담지 못한다. 범위마다 모아 두었다가 합친다.
+        Map<Long, String> teamNames = new HashMap<>();
+        MemberColumnarFile.RowGroup[] groups = new MemberColumnarFile.RowGroup[ranges.size()];
+
+        try (FileChannel channel = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            AtomicLong position = new AtomicLong(MemberColumnarFile.HEADER_BYTES);
+
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < ranges.size(); i++) {
+                int index = i;
+                long[] range = ranges.get(i);
+                tasks.add(() -> {
+                    MemberColumnarFile.RowGroupWriter writer = new MemberColumnarFile.RowGroupWriter();
+                    Map<Long, String> rangeTeamNames = new HashMap<>();
+                    scan(range[0], range[1], row -> {
+                        Long teamId = (Long) row[3];
+                        writer.add((Long) row[0], (String) row[1], (Integer) row[2], teamId);
+                        if (teamId != null) {
+                            rangeTeamNames.put(teamId, (String) row[4]);
+                        }
+                    });
+                    synchronized (teamNames) {
+                        teamNames.putAll(rangeTeamNames);
+                    }
+                    if (writer.rows() == 0) {
+                        return null;
+                    }
+
+                    int length = writer.size();
+                    long offset = position.getAndAdd(length);
+                    writer.writeTo(channel.map(FileChannel.MapMode.READ_WRITE, offset, length));
+                    groups[index] = new MemberColumnarFile.RowGroup(offset, length, writer.rows());
+                    return null;
+                });
+            }
+            runAll(pool, tasks);
+
+            List<MemberColumnarFile.RowGroup> written = new ArrayList<>();
+            long rows = 0;
+            for (MemberColumnarFile.RowGroup group : groups) {
+                if (group != null) {
+                    written.add(group);
+                    rows += group.rows;
+                }
+            }
+            MemberColumnarFile.writeFooter(channel, position.get(), written, teamNames);
+            return rows;
+        }
+    }
+
+    private long exportCsv(Path target, List<long[]> ranges, ForkJoinPool pool) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        List<Path> parts = new ArrayList<>();
+        try {
+            List<Callable<Long>> tasks = new ArrayList<>();
+            for (long[] range : ranges) {
+                Path part = Files.createTempFile(directory, "member-export-", ".csv");
+                parts.add(part);
+                tasks.add(() -> {
+                    long[] rows = {0};
+                    try (Writer writer = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+                        scan(range[0], range[1], row -> {
+                            writeCsvRow(writer, row);
+                            rows[0]++;
+                        });
+                    }
+                    return rows[0];
+                });
+            }
+            List<Long> counts = runAll(pool, tasks);
+
+            try (FileChannel out = FileChannel.open(target,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.wrap(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                for (Path part : parts) {
+                    try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                        long size = in.size();
+                        for (long copied = 0; copied < size; ) {
+                            copied += in.transferTo(copied, size - copied, out);
+                        }
+                    }
+                }
+            }
+            return counts.stream().mapToLong(Long::longValue).sum();
+        } finally {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    private static void writeCsvRow(Writer writer, Object[] row) {
+        try {
+            writer.write(String.valueOf(row[0]));
+            writer.write(',');
+            writeCsvValue(writer, (String) row[1]);
+            writer.write(',');
+            writer.write(String.valueOf(row[2]));
+            writer.write(',');
+            writer.write(row[3] != null ? String.valueOf(row[3]) : "");
+            writer.write(',');
+            writeCsvValue(writer, (String) row[4]);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    // [from, to] 범위 목록. member 가 없으면 비어 있다.
+    private List<long[]> ranges() {
+        Object[] minMax;
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            minMax = (Object[]) session.createQuery("select min(m.id), max(m.id) from Member m").uniqueResult();
+        } finally {
+            session.close();
+        }
+
+        List<long[]> ranges = new ArrayList<>();
+        if (minMax[0] == null) {
+            return ranges;
+        }
+        long min = (Long) minMax[0];
+        long max = (Long) minMax[1];
+        for (long from = min; from <= max; from += rangeSize) {
+            ranges.add(new long[]{from, Math.min(max, from + rangeSize - 1)});
+        }
+        return ranges;
+    }
+
+    private void scan(long from, long to, Consumer<Object[]> consumer) {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            ScrollableResults results = session.createQuery(RANGE_QUERY)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (results.next()) {
+                    consumer.accept(results.get());
+                }
+            } finally {
+                results.close();
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    private static <T> List<T> runAll(ForkJoinPool pool, List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("member export interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        return results;
+    }
+
+    @Getter
+    public static class Result {
+        private final Path path;
+        private final Format format;
+        private final long rows;
+        private final int ranges;
+        private final long millis;
+
+        Result(Path path, Format format, long rows, int ranges, long millis) {
+            this.path = path;
+            this.format = format;
+            this.rows = rows;
+            this.ranges = ranges;
+            this.millis = millis;
+        }
+
+        public long getRowsPerSecond() {
+            return millis > 0 ? rows * 1000 / millis : rows;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.dto.MemberSeekCursor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static study.querydsl.repository.MemberSearchPredicates.*;
+
+/**
+ * 실제로 들어온 (조건 모양, 정렬) 조합을 모아 두었다가, 조합마다 마지막으로 본 값으로
+ * H2 EXPLAIN ANALYZE 를 돌려 테이블 접근 방식과 필요한 인덱스를 알려 준다.
+ *
+ * 인덱스는 실행 계획이 테이블 전체 스캔으로 MIN_SCANNED_ROWS 행 이상을 읽은 테이블에만 권한다.
+ * 권하는 컬럼은 그 테이블에 걸린 조건과 정렬에서 고른다.
+ * */
+@Component
+@RequiredArgsConstructor
+public class MemberIndexAdvisor {
+
+    public static final String UNSORTED = "none";
+
+    private static final Pattern TABLE = Pattern.compile("(?:FROM|JOIN)\\s+\"?PUBLIC\"?\\.\"?(\\w+)\"?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ACCESS = Pattern.compile("/\\*\\s*\"?PUBLIC\"?\\.\"?(\\w+)\"?(\\.tableScan|:[^*]*)?\\s*\\*/");
+    private static final Pattern SCAN_COUNT = Pattern.compile("/\\*\\s*scanCount:\\s*(\\d+)\\s*\\*/");
+    // 이보다 적게 읽는 스캔은 인덱스를 타는 것과 차이가 없다.
+    private static final long MIN_SCANNED_ROWS = 1_000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ConcurrentMap<String, Observation> observations = new ConcurrentHashMap<>();
+
+    public void record(MemberSearchCondition condition, MemberSeekCursor cursor) {
+        int shape = shapeOf(condition);
+        String sort = sortOf(cursor);
+        Observation observation = observations.computeIfAbsent(shape + "|" + sort, key -> new Observation(shape, sort));
+        observation.calls.increment();
+        // 대표값은 마지막 요청의 값으로 한다. 조건 객체는 바뀔 수 있으므로 파라미터만 복사해 둔다.
+        observation.parameters = MemberSearchSql.parameters(condition);
+    }
+
+    /**
+     * 호출 수가 많은 순서로 조합마다 실행 계획을 분석한다. DB 에 실제로 쿼리를 실행하므로 관리용으로만 쓴다.
+     * */
+    public List<Advice> report() {
+        List<Observation> sorted = new ArrayList<>(observations.values());
+        sorted.sort(Comparator.comparingLong((Observation o) -> o.calls.sum()).reversed());
+
+        Long memberRows = tableRows("MEMBER");
+        List<Advice> advices = new ArrayList<>();
+        for (Observation observation : sorted) {
+            String sql = MemberSearchSql.SELECT + MemberSearchSql.where(observation.shape)
+                    + orderBy(observation.sort) + " limit 20";
+            String plan = jdbcTemplate.queryForObject("explain analyze " + sql, observation.parameters, String.class);
+            advices.add(new Advice(observation, sql, plan, memberRows));
+        }
+        return advices;
+    }
+
+    private Long tableRows(String table) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("table", table);
+        List<Long> rows = jdbcTemplate.queryForList(
+                "select row_count_estimate from information_schema.tables where table_schema = 'PUBLIC' and table_name = :table",
+                parameters, Long.class);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static String sortOf(MemberSeekCursor cursor) {
+        if (cursor == null) {
+            return UNSORTED;
+        }
+        return cursor.getSortKey() == MemberSeekCursor.SortKey.AGE ? "age,id" : "id";
+    }
+
+    private static String orderBy(String sort) {
+        if (UNSORTED.equals(sort)) {
+            return "";
+        }
+        return " order by " + ("age,id".equals(sort) ? "m.age, m.id" : "m.id");
+    }
+
+    /**
+     * 전체 스캔한 테이블마다 조건과 정렬로 인덱스 컬럼을 고른다. 예) member(username): scan 12000 rows
+     * */
+    static List<String> recommend(int shape, String sort, Map<String, String> access, Map<String, Long> scanned) {
+        List<String> indexes = new ArrayList<>();
+        if (isLargeScan("TEAM", access, scanned) && (shape & TEAM_NAME) != 0) {
+            indexes.add("team(name): scan " + scanned.get("TEAM") + " rows");
+        }
+        if (isLargeScan("MEMBER", access, scanned)) {
+            String columns = memberColumns(shape, sort);
+            if (columns != null) {
+                indexes.add("member(" + columns + "): scan " + scanned.get("MEMBER") + " rows");
+            }
+        }
+        return indexes;
+    }
+
+    private static boolean isLargeScan(String table, Map<String, String> access, Map<String, Long> scanned) {
+        Long rows = scanned.get(table);
+        return "scan".equals(access.get(table)) && rows != null && rows >= MIN_SCANNED_ROWS;
+    }
+
+    // 가장 좁히는 조건을 앞에 둔다. 조건도 정렬도 없으면 스캔이 맞으므로 null
+    private static String memberColumns(int shape, String sort) {
+        boolean ageRange = (shape & (AGE_GOE | AGE_LOE)) != 0;
+        if ((shape & USERNAME) != 0) {
+            return "username";
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            return ageRange ? "team_id, age" : "team_id";
+        }
+        if ("age,id".equals(sort)) {
+            return "age, id";
+        }
+        return ageRange ? "age" : null;
+    }
+
+    private static class Observation {
+        private final int shape;
+        private final String sort;
+        private final LongAdder calls = new LongAdder();
+        private volatile Map<String, Object> parameters;
+
+        Observation(int shape, String sort) {
+            this.shape = shape;
+            this.sort = sort;
+        }
+    }
+
+    @Getter
+    public static class Advice {
+        private final String shape;
+        private final String sort;
+        private final long calls;
+        private final String sql;
+        private final String plan;
+        // 테이블 -> 사용한 인덱스 이름 또는 "scan"
+        private final Map<String, String> access = new LinkedHashMap<>();
+        // 테이블 -> EXPLAIN ANALYZE 가 센 실제 읽은 행 수
+        private final Map<String, Long> scanned = new LinkedHashMap<>();
+        private final Long memberRows;
+        private final List<String> recommended;
+        private final boolean scan;
+
+        Advice(Observation observation, String sql, String plan, Long memberRows) {
+            this.shape = MemberQueryMetrics.shapeName(observation.shape);
+            this.sort = observation.sort;
+            this.calls = observation.calls.sum();
+            this.sql = sql;
+            this.plan = plan;
+            this.memberRows = memberRows;
+            parse(plan);
+            this.recommended = recommend(observation.shape, observation.sort, access, scanned);
+            this.scan = "scan".equals(access.get("MEMBER"));
+        }
+
+        private void parse(String plan) {
+            String table = null;
+            for (String line : plan.split("\n")) {
+                Matcher tableMatcher = TABLE.matcher(line);
+                if (tableMatcher.find()) {
+                    table = tableMatcher.group(1).toUpperCase(Locale.ROOT);
+                }
+                if (table == null) {
+                    continue;
+                }
+                Matcher accessMatcher = ACCESS.matcher(line);
+                if (accessMatcher.find() && !access.containsKey(table)) {
+                    boolean tableScan = ".tableScan".equals(accessMatcher.group(2));
+                    access.put(table, tableScan ? "scan" : accessMatcher.group(1));
+                }
+                Matcher scanCountMatcher = SCAN_COUNT.matcher(line);
+                if (scanCountMatcher.find() && !scanned.containsKey(table)) {
+                    scanned.put(table, Long.parseLong(scanCountMatcher.group(1)));
+                }
+            }
+        }
+    }
+}
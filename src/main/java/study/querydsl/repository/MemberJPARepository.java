@@ -1,21 +1,20 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.domain.Member;
 import study.querydsl.MemberSearchCondition;
-import study.querydsl.QMemberTeamDto;
 import study.querydsl.dto.MemberTeamDto;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import static study.querydsl.QMember.member;
-import static study.querydsl.QTeam.team;
 
 @Repository
 @RequiredArgsConstructor
@@ -23,74 +22,66 @@ public class MemberJPARepository {
 
     private final EntityManager entityManager;
     private final JPAQueryFactory jpaQueryFactory;
+    private final MemberSearchQueryTemplates memberSearchQueryTemplates;
+    private final MemberMultiGet memberMultiGet;
+    private final MemberSearchResultCache memberSearchResultCache;
 
     public void save(Member member) {
         entityManager.persist(member);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Member> findById(Long id) {
         Member member = entityManager.find(Member.class, id);
         return Optional.of(member);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Member> findByIdQuerydsl(Long id) {
         Member findMember = jpaQueryFactory.selectFrom(member).where(member.id.eq(id)).fetchOne();
         return Optional.of(findMember);
     }
 
+    /**
+     * findById 를 반복하는 대신 사용한다. 요청한 id 순서대로 돌려준다.
+     * */
+    @Transactional(readOnly = true)
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        return memberMultiGet.findAllByIds(ids);
+    }
+
+    @Transactional(readOnly = true)
     public List<Member> findAll() {
         return entityManager.createQuery("select m from Member m", Member.class).getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAllQuerydsl() {
         return jpaQueryFactory.selectFrom(member).fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername(String username) {
+        // 자주 쓰이는 조회라 결과를 query cache 에 둔다. member 테이블이 바뀌면 자동으로 무효화된다.
         return entityManager.createQuery("select m from Member m where m.username = :username")
                 .setParameter("username", username)
+                .setHint(QueryHints.CACHEABLE, true)
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsernameQuerydsl(String username) {
-        return jpaQueryFactory.selectFrom(member).where(member.username.eq(username)).fetch();
+        return jpaQueryFactory.selectFrom(member).where(member.username.eq(username)).setHint(QueryHints.CACHEABLE, true).fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> findBySearchCondition(MemberSearchCondition condition) {
 
-        return jpaQueryFactory
-                .select(new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, member.team.id.as("teamId"), member.team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        teamNameEq(condition.getTeamName()),
-                        usernameEq(condition.getUsername()),
-                        ageGoe(condition.getGoe()),
-                        ageLoe(condition.getLoe())
-                )
-                .limit(limit(condition.getSize()))
-                .fetch();
+        // 조건 모양별로 만들어 둔 JPQL 에 파라미터만 바인딩한다. search 와 결과가 같으므로 캐시를 함께 쓴다.
+        return memberSearchResultCache.get(condition, () -> memberSearchQueryTemplates.fetch(condition, 0, limit(condition.getSize())));
     }
 
     private long limit(Integer size) {
         return size != null ? size : 10;
     }
-
-    private BooleanExpression ageLoe(Integer loe) {
-        return loe != null ? member.age.loe(loe) : null;
-    }
-
-    private BooleanExpression ageGoe(Integer goe) {
-        return goe != null ? member.age.goe(goe) : null;
-    }
-
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? member.username.eq(username) : null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? member.team.name.eq(teamName) : null;
-    }
-
-
 }
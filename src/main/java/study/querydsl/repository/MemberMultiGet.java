@@ -0,0 +1,105 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.domain.Member;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static study.querydsl.QMember.member;
+
+/**
+ * id 여러 개를 한 번에 조회한다.
+ *
+ * - 영속성 컨텍스트에 이미 있는 엔티티는 그대로 쓴다.
+ * - 2차 캐시에 있는 엔티티는 find 로 캐시에서 꺼낸다. (SQL 없음)
+ * - 나머지는 chunk-size 단위의 in 절로 조회한다. in 절 길이를 2의 거듭제곱으로 맞춰서
+ *   파라미터 개수마다 다른 쿼리 계획이 생기지 않게 한다.
+ * */
+@Component
+public class MemberMultiGet {
+
+    private final EntityManager entityManager;
+    private final JPAQueryFactory jpaQueryFactory;
+    private final int chunkSize;
+
+    public MemberMultiGet(EntityManager entityManager,
+                          JPAQueryFactory jpaQueryFactory,
+                          @Value("${member.multi-get.chunk-size:512}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.jpaQueryFactory = jpaQueryFactory;
+        // chunk 자체도 패딩 후 크기와 같아야 계획 수가 log2(chunkSize) 개로 묶인다.
+        this.chunkSize = Integer.highestOneBit(Math.max(1, chunkSize));
+    }
+
+    /**
+     * 요청한 순서대로 돌려준다. 중복 id 는 한 번만, 없는 id 는 건너뛴다.
+     * */
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        Map<Long, Member> found = new HashMap<>(requested.size() * 2);
+
+        List<Long> missing = new ArrayList<>();
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        javax.persistence.Cache secondLevelCache = entityManager.getEntityManagerFactory().getCache();
+
+        for (Long id : requested) {
+            Object managed = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+            if (managed != null) {
+                found.put(id, (Member) managed);
+            } else if (secondLevelCache.contains(Member.class, id)) {
+                Member cached = entityManager.find(Member.class, id);
+                if (cached != null) {
+                    found.put(id, cached);
+                }
+            } else {
+                missing.add(id);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += chunkSize) {
+            List<Long> chunk = missing.subList(from, Math.min(missing.size(), from + chunkSize));
+            for (Member fetched : jpaQueryFactory.selectFrom(member).where(member.id.in(pad(chunk))).fetch()) {
+                found.put(fetched.getId(), fetched);
+            }
+        }
+
+        List<Member> result = new ArrayList<>(found.size());
+        for (Long id : requested) {
+            Member value = found.get(id);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    // 마지막 id 를 반복해서 다음 2의 거듭제곱 길이로 채운다. 결과에는 영향이 없다.
+    static List<Long> pad(List<Long> chunk) {
+        int size = chunk.size();
+        int padded = size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+        if (padded == size) {
+            return chunk;
+        }
+        List<Long> result = new ArrayList<>(padded);
+        result.addAll(chunk);
+        Long last = chunk.get(size - 1);
+        while (result.size() < padded) {
+            result.add(last);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+package study.querydsl.repository;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.listener.SqlStatementInspector;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * pagingComplex 의 count 를 content 쿼리와 동시에 실행한다. (member.paging.parallel-count=true)
+ *
+ * count 는 별도의 읽기 전용 EntityManager(별도 커넥션)로 실행하고,
+ * PageableExecutionUtils 가 count 를 쓰지 않으면 close() 에서 취소한다.
+ * 이미 실행 중이면 스레드 인터럽트로는 JDBC 쿼리가 멈추지 않으므로 그 세션의 statement 를 취소한다.
+ * 쓰기 트랜잭션 안에서는 커밋 전 변경이 보이도록 호출한 스레드의 EntityManager 로 count 한다.
+ * */
+@Component
+public class MemberPageCounter {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final MemberSearchQueryTemplates memberSearchQueryTemplates;
+    private final MemberCountCache memberCountCache;
+    private final ExecutorService executor;
+    private final boolean parallel;
+
+    public MemberPageCounter(EntityManagerFactory entityManagerFactory,
+                             MemberSearchQueryTemplates memberSearchQueryTemplates,
+                             MemberCountCache memberCountCache,
+                             @Qualifier("memberCountExecutor") ExecutorService executor,
+                             @Value("${member.paging.parallel-count:false}") boolean parallel) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.memberSearchQueryTemplates = memberSearchQueryTemplates;
+        this.memberCountCache = memberCountCache;
+        this.executor = executor;
+        this.parallel = parallel;
+    }
+
+    public PendingCount start(MemberSearchCondition condition) {
+        // 캐시에 있으면 병렬로 돌릴 이유가 없다. 별도 커넥션으로는 현재 트랜잭션의 변경이 보이지 않는다.
+        // 쓰기 트랜잭션 안에서는 MemberCountCache 도 거치지 않고 호출한 스레드에서 count 한다.
+        if (!parallel || SqlStatementInspector.isInWriteTransaction() || memberCountCache.getIfPresent(condition) != null) {
+            return new PendingCount(condition, null);
+        }
+        PendingCount count = new PendingCount(condition);
+        try {
+            count.future = executor.submit(() -> memberCountCache.get(condition, () -> countWithOwnEntityManager(condition, count)));
+        } catch (RejectedExecutionException e) {
+            return new PendingCount(condition, null);
+        }
+        return count;
+    }
+
+    private long countWithOwnEntityManager(MemberSearchCondition condition, PendingCount count) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        Session session = entityManager.unwrap(Session.class);
+        try {
+            session.setDefaultReadOnly(true);
+            count.running(session);
+            return memberSearchQueryTemplates.count(entityManager, condition);
+        } finally {
+            count.running(null);
+            entityManager.close();
+        }
+    }
+
+    public class PendingCount implements LongSupplier, AutoCloseable {
+
+        private final MemberSearchCondition condition;
+        // null 이면 필요할 때 호출한 스레드에서 count 한다.
+        private volatile Future<Long> future;
+        // count 를 실행 중인 세션. 실행 전이거나 끝났으면 null
+        private Session session;
+        private boolean cancelled;
+
+        private PendingCount(MemberSearchCondition condition, Future<Long> future) {
+            this.condition = condition;
+            this.future = future;
+        }
+
+        private PendingCount(MemberSearchCondition condition) {
+            this(condition, null);
+        }
+
+        // close() 가 먼저 불렸으면 쿼리를 시작하지 않는다.
+        private synchronized void running(Session session) {
+            if (session != null && cancelled) {
+                throw new CancellationException();
+            }
+            this.session = session;
+        }
+
+        @Override
+        public long getAsLong() {
+            if (future == null) {
+                return memberCountCache.get(condition, () -> memberSearchQueryTemplates.count(condition));
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("count 쿼리를 기다리는 중 인터럽트 되었습니다.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (CancellationException e) {
+                return memberCountCache.get(condition, () -> memberSearchQueryTemplates.count(condition));
+            }
+        }
+
+        // 이미 끝났으면 아무 일도 하지 않는다. 실행 중이면 JDBC statement 를 취소한다. (count 는 예외로 끝나 캐시에 남지 않는다)
+        @Override
+        public void close() {
+            if (future == null || !future.cancel(true)) {
+                return;
+            }
+            synchronized (this) {
+                cancelled = true;
+                if (session != null) {
+                    session.cancelQuery();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import study.querydsl.MemberSearchCondition;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static study.querydsl.repository.MemberSearchPredicates.*;
+
+/**
+ * 메서드 x 조건 모양 x size 유무 별로 지연 시간, 반환 건수, 실행한 SQL 수를 기록한다.
+ *
+ * 모양은 16가지 x 2 뿐이므로 미터를 한 번 만들어 배열에 두고 재사용한다.
+ * 호출 수는 LongAdder 로 세어 경합 없이 가장 많이 쓰이는 모양을 뽑을 수 있다.
+ * */
+@Component
+@RequiredArgsConstructor
+public class MemberQueryMetrics {
+
+    private static final String[] SHAPE_NAMES = new String[SHAPE_COUNT];
+
+    static {
+        for (int shape = 0; shape < SHAPE_COUNT; shape++) {
+            SHAPE_NAMES[shape] = shapeName(shape);
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, AtomicReferenceArray<ShapeMeters>> meters = new ConcurrentHashMap<>();
+
+    public ShapeMeters meters(String method, MemberSearchCondition condition) {
+        int shape = shapeOf(condition);
+        boolean sized = condition.getSize() != null;
+        int index = shape * 2 + (sized ? 1 : 0);
+
+        AtomicReferenceArray<ShapeMeters> methodMeters = meters.computeIfAbsent(method, m -> new AtomicReferenceArray<>(SHAPE_COUNT * 2));
+        ShapeMeters shapeMeters = methodMeters.get(index);
+        if (shapeMeters == null) {
+            methodMeters.compareAndSet(index, null, new ShapeMeters(method, shape, sized));
+            shapeMeters = methodMeters.get(index);
+        }
+        return shapeMeters;
+    }
+
+    /**
+     * 호출 수가 많은 순서로 돌려준다.
+     * */
+    public List<ShapeMeters> heavyHitters(int limit) {
+        List<ShapeMeters> all = new ArrayList<>();
+        for (AtomicReferenceArray<ShapeMeters> methodMeters : meters.values()) {
+            for (int i = 0; i < methodMeters.length(); i++) {
+                ShapeMeters shapeMeters = methodMeters.get(i);
+                if (shapeMeters != null) {
+                    all.add(shapeMeters);
+                }
+            }
+        }
+        all.sort(Comparator.comparingLong(ShapeMeters::getCalls).reversed());
+        return all.subList(0, Math.min(limit, all.size()));
+    }
+
+    public static String shapeName(int shape) {
+        if (shape == 0) {
+            return "none";
+        }
+        StringBuilder name = new StringBuilder();
+        appendIf(name, shape, TEAM_NAME, "teamName");
+        appendIf(name, shape, USERNAME, "username");
+        appendIf(name, shape, AGE_GOE, "goe");
+        appendIf(name, shape, AGE_LOE, "loe");
+        return name.toString();
+    }
+
+    private static void appendIf(StringBuilder name, int shape, int bit, String predicate) {
+        if ((shape & bit) != 0) {
+            if (name.length() > 0) {
+                name.append('+');
+            }
+            name.append(predicate);
+        }
+    }
+
+    @Getter
+    public class ShapeMeters {
+        private final String method;
+        private final String shape;
+        private final boolean sized;
+
+        private final LongAdder callCount = new LongAdder();
+        private final Timer latency;
+        private final DistributionSummary rows;
+        private final DistributionSummary statements;
+
+        ShapeMeters(String method, int shape, boolean sized) {
+            this.method = method;
+            this.shape = SHAPE_NAMES[shape];
+            this.sized = sized;
+
+            Tags tags = Tags.of("method", method, "shape", this.shape, "sized", String.valueOf(sized));
+            this.latency = Timer.builder("member.repository.query")
+                    .description("검색 조건 모양별 조회 시간")
+                    .tags(tags)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.rows = DistributionSummary.builder("member.repository.rows")
+                    .description("조회 한 번에 반환한 건수")
+                    .tags(tags)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            this.statements = DistributionSummary.builder("member.repository.statements")
+                    .description("조회 한 번에 실행한 SQL 수")
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+
+        public void record(long elapsedNanos, int rowCount, long statementCount) {
+            callCount.increment();
+            latency.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            if (rowCount >= 0) {
+                rows.record(rowCount);
+            }
+            statements.record(statementCount);
+        }
+
+        public long getCalls() {
+            return callCount.sum();
+        }
+    }
+}
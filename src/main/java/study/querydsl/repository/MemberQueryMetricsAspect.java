@@ -0,0 +1,82 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.dto.MemberSeekCursor;
+import study.querydsl.dto.MemberSeekPage;
+import study.querydsl.listener.SqlStatementCounter;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * MemberSearchCondition 을 받는 조회 메서드를 감싸 MemberQueryMetrics 와 MemberIndexAdvisor 에 기록한다.
+ * 벌크 연산(bulk*)은 조회가 아니므로 제외한다. 조회 shape 별 지연 시간과 인덱스 추천이 섞이지 않도록
+ * */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class MemberQueryMetricsAspect {
+
+    private final MemberQueryMetrics memberQueryMetrics;
+    private final MemberIndexAdvisor memberIndexAdvisor;
+
+    @Around("(execution(public * study.querydsl.repository.MemberConditionRepositoryImpl.*(..))"
+            + " || execution(public * study.querydsl.repository.MemberJPARepository.*(..)))"
+            + " && !execution(* bulk*(..))"
+            + " && args(condition, ..)")
+    public Object record(ProceedingJoinPoint joinPoint, MemberSearchCondition condition) throws Throwable {
+        MemberQueryMetrics.ShapeMeters meters = memberQueryMetrics.meters(joinPoint.getSignature().getName(), condition);
+
+        // 스트리밍은 반환값이 없으므로 consumer 를 감싸 건수를 센다.
+        Object[] args = joinPoint.getArgs();
+        int[] streamed = null;
+        MemberSeekCursor cursor = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof MemberSeekCursor) {
+                cursor = (MemberSeekCursor) args[i];
+            }
+            if (args[i] instanceof Consumer) {
+                int[] counter = streamed = new int[1];
+                // 원래 consumer 가 받던 행을 그대로 넘기므로 타입 인자는 바뀌지 않는다.
+                @SuppressWarnings("unchecked")
+                Consumer<Object> consumer = (Consumer<Object>) args[i];
+                args[i] = (Consumer<Object>) row -> {
+                    counter[0]++;
+                    consumer.accept(row);
+                };
+            }
+        }
+
+        memberIndexAdvisor.record(condition, cursor);
+
+        long statements = SqlStatementCounter.current();
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = joinPoint.proceed(args);
+            return result;
+        } finally {
+            int rows = streamed != null ? streamed[0] : rowCount(result);
+            meters.record(System.nanoTime() - start, rows, SqlStatementCounter.current() - statements);
+        }
+    }
+
+    private static int rowCount(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof MemberSeekPage) {
+            return ((MemberSeekPage) result).getContent().size();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,87 @@
+package study.querydsl.repository;
+
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static study.querydsl.repository.MemberSearchPredicates.shapeOf;
+
+/**
+ * MemberConditionRepository 의 search / pagingComplex 를 R2DBC 로 실행한다.
+ * JDBC 를 기다리며 서블릿 스레드가 묶이지 않는다.
+ * */
+@Repository
+@RequiredArgsConstructor
+public class MemberReactiveRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public Flux<MemberTeamDto> search(MemberSearchCondition condition) {
+        return fetch(condition, 0, condition.getSize() != null ? condition.getSize() : 10);
+    }
+
+    public Mono<Page<MemberTeamDto>> pagingComplex(MemberSearchCondition condition, Pageable pageable) {
+        return fetch(condition, pageable.getOffset(), pageable.getPageSize())
+                .collectList()
+                .flatMap(content -> total(condition, pageable, content)
+                        .map(total -> (Page<MemberTeamDto>) new PageImpl<>(content, pageable, total)));
+    }
+
+    public Mono<Long> count(MemberSearchCondition condition) {
+        String sql = MemberSearchSql.COUNT + MemberSearchSql.where(shapeOf(condition));
+        return bind(databaseClient.sql(sql), MemberSearchSql.parameters(condition))
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    private Flux<MemberTeamDto> fetch(MemberSearchCondition condition, long offset, long limit) {
+        String sql = MemberSearchSql.SELECT + MemberSearchSql.where(shapeOf(condition)) + " limit :limit offset :offset";
+        return bind(databaseClient.sql(sql), MemberSearchSql.parameters(condition))
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(MemberReactiveRepository::toDto)
+                .all();
+    }
+
+    // PageableExecutionUtils.getPage 와 같은 규칙으로 count 가 필요 없으면 생략한다.
+    private Mono<Long> total(MemberSearchCondition condition, Pageable pageable, List<MemberTeamDto> content) {
+        if (pageable.isUnpaged() || pageable.getOffset() == 0) {
+            if (pageable.isUnpaged() || pageable.getPageSize() > content.size()) {
+                return Mono.just((long) content.size());
+            }
+            return count(condition);
+        }
+        if (content.size() != 0 && pageable.getPageSize() > content.size()) {
+            return Mono.just(pageable.getOffset() + content.size());
+        }
+        return count(condition);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, Map<String, Object> parameters) {
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec;
+    }
+
+    private static MemberTeamDto toDto(Row row) {
+        Integer age = row.get("age", Integer.class);
+        return new MemberTeamDto(
+                row.get("member_id", Long.class),
+                row.get("username", String.class),
+                age != null ? age : 0,
+                row.get("team_id", Long.class),
+                row.get("team_name", String.class));
+    }
+}
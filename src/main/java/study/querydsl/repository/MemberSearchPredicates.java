@@ -0,0 +1,71 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import org.springframework.util.StringUtils;
+import study.querydsl.MemberSearchCondition;
+
+import static study.querydsl.QMember.member;
+import static study.querydsl.QTeam.team;
+
+/**
+ * MemberSearchCondition 의 동적 조건. null 을 돌려주면 where 절에서 무시된다.
+ * */
+public final class MemberSearchPredicates {
+
+    public static final int TEAM_NAME = 1;
+    public static final int USERNAME = 1 << 1;
+    public static final int AGE_GOE = 1 << 2;
+    public static final int AGE_LOE = 1 << 3;
+
+    // 조건 4개의 조합이므로 쿼리 모양은 16가지뿐이다.
+    public static final int SHAPE_COUNT = 1 << 4;
+
+    private MemberSearchPredicates() {
+    }
+
+    public static BooleanExpression ageLoe(Integer loe) {
+        return loe != null ? member.age.loe(loe) : null;
+    }
+
+    public static BooleanExpression ageGoe(Integer goe) {
+        return goe != null ? member.age.goe(goe) : null;
+    }
+
+    public static BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    public static BooleanExpression teamNameEq(String teamName) {
+        return StringUtils.hasText(teamName) ? member.team.name.eq(teamName) : null;
+    }
+
+    /**
+     * 벌크 update / delete 는 묵시적 조인을 쓸 수 없어서 팀 이름을 서브쿼리로 거른다.
+     * */
+    public static BooleanExpression teamNameIn(String teamName) {
+        return StringUtils.hasText(teamName)
+                ? member.team.id.in(JPAExpressions.select(team.id).from(team).where(team.name.eq(teamName)))
+                : null;
+    }
+
+    /**
+     * 어떤 조건이 들어왔는지를 비트로 나타낸다. 값이 달라도 모양이 같으면 같은 쿼리다.
+     * */
+    public static int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        if (StringUtils.hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (StringUtils.hasText(condition.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (condition.getGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        return shape;
+    }
+}
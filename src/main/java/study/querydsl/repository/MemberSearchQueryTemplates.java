@@ -0,0 +1,144 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.QMemberTeamDto;
+import study.querydsl.dto.MemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static study.querydsl.QMember.member;
+import static study.querydsl.QTeam.team;
+import static study.querydsl.repository.MemberSearchPredicates.*;
+
+/**
+ * 검색 조건의 모양(shape)별로 querydsl 이 만든 JPQL 을 한 번만 만들어 두고,
+ * 요청마다 파라미터만 바인딩해서 실행한다.
+ *
+ * querydsl 메타데이터 생성과 JPQL 직렬화를 건너뛰고, 같은 JPQL 문자열을 쓰기 때문에
+ * Hibernate 의 query plan cache 도 항상 적중한다. (hibernate.cache.query.plan 지표 참고)
+ * */
+@Component
+@RequiredArgsConstructor
+public class MemberSearchQueryTemplates implements MeterBinder {
+
+    // 모양마다 상수가 서로 달라야 querydsl 이 같은 파라미터 번호를 재사용하지 않는다.
+    private static final String TEAM_NAME_PLACEHOLDER = "teamName";
+    private static final String USERNAME_PLACEHOLDER = "username";
+    private static final int GOE_PLACEHOLDER = 1;
+    private static final int LOE_PLACEHOLDER = 2;
+
+    private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(member.id.as("memberId"), member.username, member.age, member.team.id.as("teamId"), member.team.name.as("teamName"));
+
+    private final JPAQueryFactory jpaQueryFactory;
+    private final EntityManager entityManager;
+
+    private final AtomicReferenceArray<String> contentTemplates = new AtomicReferenceArray<>(SHAPE_COUNT);
+    private final AtomicReferenceArray<String> countTemplates = new AtomicReferenceArray<>(SHAPE_COUNT);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public List<MemberTeamDto> fetch(MemberSearchCondition condition, long offset, long limit) {
+        int shape = shapeOf(condition);
+        Query query = entityManager.createQuery(template(contentTemplates, shape, true));
+        bind(query, condition, shape);
+        query.setFirstResult((int) offset);
+        query.setMaxResults((int) limit);
+
+        List<?> rows = query.getResultList();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(PROJECTION.newInstance((Object[]) row));
+        }
+        return result;
+    }
+
+    public long count(MemberSearchCondition condition) {
+        return count(entityManager, condition);
+    }
+
+    public long count(EntityManager entityManager, MemberSearchCondition condition) {
+        int shape = shapeOf(condition);
+        Query query = entityManager.createQuery(template(countTemplates, shape, false));
+        bind(query, condition, shape);
+        return (Long) query.getSingleResult();
+    }
+
+    private String template(AtomicReferenceArray<String> templates, int shape, boolean content) {
+        String jpql = templates.get(shape);
+        if (jpql != null) {
+            hits.increment();
+            return jpql;
+        }
+        misses.increment();
+        // 동시에 만들어도 결과는 같으므로 먼저 들어간 것을 쓴다.
+        templates.compareAndSet(shape, null, content ? contentJpql(shape) : countJpql(shape));
+        return templates.get(shape);
+    }
+
+    private String contentJpql(int shape) {
+        return jpaQueryFactory
+                .select(PROJECTION)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(placeholders(shape))
+                .toString();
+    }
+
+    private String countJpql(int shape) {
+        return jpaQueryFactory
+                .select(member.count())
+                .from(member)
+                .where(placeholders(shape))
+                .toString();
+    }
+
+    // where 절에 조건이 나오는 순서가 곧 파라미터 번호(?1, ?2 ...) 순서다.
+    private BooleanExpression[] placeholders(int shape) {
+        return new BooleanExpression[]{
+                (shape & TEAM_NAME) != 0 ? teamNameEq(TEAM_NAME_PLACEHOLDER) : null,
+                (shape & USERNAME) != 0 ? usernameEq(USERNAME_PLACEHOLDER) : null,
+                (shape & AGE_GOE) != 0 ? ageGoe(GOE_PLACEHOLDER) : null,
+                (shape & AGE_LOE) != 0 ? ageLoe(LOE_PLACEHOLDER) : null
+        };
+    }
+
+    private void bind(Query query, MemberSearchCondition condition, int shape) {
+        int position = 1;
+        if ((shape & TEAM_NAME) != 0) {
+            query.setParameter(position++, condition.getTeamName());
+        }
+        if ((shape & USERNAME) != 0) {
+            query.setParameter(position++, condition.getUsername());
+        }
+        if ((shape & AGE_GOE) != 0) {
+            query.setParameter(position++, condition.getGoe());
+        }
+        if ((shape & AGE_LOE) != 0) {
+            query.setParameter(position, condition.getLoe());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.query.template", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("querydsl 직렬화 없이 재사용한 검색 쿼리 수")
+                .register(registry);
+        FunctionCounter.builder("member.query.template", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+    }
+}
@@ -0,0 +1,181 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.listener.ChangeType;
+import study.querydsl.listener.MemberChangedEvent;
+import study.querydsl.listener.MemberSnapshot;
+import study.querydsl.listener.SqlStatementInspector;
+import study.querydsl.listener.TeamChangedEvent;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * search / findBySearchCondition 결과를 조건(size 포함)별로 보관한다.
+ *
+ * - 무게는 결과 행 수다. maximum-rows 를 넘거나 ttl 이 지나면 밀려난다.
+ * - 커밋된 엔티티 변경은 변경 전 / 후 값 중 하나라도 조건에 맞는 항목만 지운다.
+ * - 벌크 연산 뒤에는 어떤 행이 바뀌었는지 모르므로 전부 지운다.
+ * - 먼저 담고 나서 조회 도중 무효화가 일어났으면 다시 지운다. (확인 후 담으면 그 사이의 무효화를 놓친다)
+ *   그래서 세대 증가와 무효화는 MemberColumnStore 가 변경을 반영한 뒤에 한다.
+ * - 쓰기 트랜잭션 안에서는 캐시를 거치지 않는다.
+ *
+ * 돌려주는 목록은 여러 요청이 공유하므로 수정하면 안 된다.
+ * */
+@Component
+public class MemberSearchResultCache implements MeterBinder {
+
+    private final Cache<SearchKey, List<MemberTeamDto>> cache;
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong generation = new AtomicLong();
+    private final ConcurrentMap<Long, String> teamNames = new ConcurrentHashMap<>();
+
+    public MemberSearchResultCache(JdbcTemplate jdbcTemplate,
+                                   @Value("${member.result-cache.ttl:60s}") Duration ttl,
+                                   @Value("${member.result-cache.maximum-rows:100000}") long maximumRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(maximumRows)
+                .weigher((SearchKey key, List<MemberTeamDto> rows) -> rows.size() + 1)
+                .recordStats()
+                .build();
+    }
+
+    public List<MemberTeamDto> get(MemberSearchCondition condition, Supplier<List<MemberTeamDto>> query) {
+        if (SqlStatementInspector.isInWriteTransaction()) {
+            return query.get();
+        }
+        SearchKey key = SearchKey.of(condition);
+        List<MemberTeamDto> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long before = generation.get();
+        List<MemberTeamDto> result = Collections.unmodifiableList(query.get());
+        cache.put(key, result);
+        if (generation.get() != before) {
+            cache.invalidate(key);
+        }
+        return result;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @EventListener
+    @Order(MemberColumnStore.EVENT_ORDER + 1)
+    public void onMemberChanged(MemberChangedEvent event) {
+        generation.incrementAndGet();
+        MemberSnapshot before = event.getBefore();
+        MemberSnapshot after = event.getAfter();
+        if (event.getType() == ChangeType.UPDATE && before == null) {
+            // 이전 값을 모르면 어느 항목에 들어 있었는지 알 수 없다.
+            cache.invalidateAll();
+            return;
+        }
+        String beforeTeam = before != null ? teamName(before.getTeamId()) : null;
+        String afterTeam = after != null ? teamName(after.getTeamId()) : null;
+        cache.asMap().keySet().removeIf(key -> key.matches(before, beforeTeam) || key.matches(after, afterTeam));
+    }
+
+    @EventListener
+    @Order(MemberColumnStore.EVENT_ORDER + 1)
+    public void onTeamChanged(TeamChangedEvent event) {
+        generation.incrementAndGet();
+        teamNames.remove(event.getTeamId());
+        String nameBefore = event.getNameBefore();
+        String nameAfter = event.getNameAfter();
+        cache.asMap().keySet().removeIf(key -> key.teamName != null
+                && (key.teamName.equals(nameBefore) || key.teamName.equals(nameAfter)));
+    }
+
+    @EventListener
+    @Order(MemberColumnStore.EVENT_ORDER + 1)
+    public void onBulkChanged(MemberBulkChangedEvent event) {
+        teamNames.clear();
+        invalidateAll();
+    }
+
+    // 팀 이름 조건과 비교하려고 id 로 이름을 찾는다. 못 찾으면 null 이고 팀 조건은 맞는 것으로 본다.
+    private String teamName(Long teamId) {
+        if (teamId == null) {
+            return null;
+        }
+        return teamNames.computeIfAbsent(teamId, id -> {
+            List<String> names = jdbcTemplate.queryForList("select name from team where id = ?", String.class, id);
+            return names.isEmpty() ? null : names.get(0);
+        });
+    }
+
+    // cache.gets{cache=member.search, result=hit|miss}, cache.evictions 등과 적중률 게이지
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "member.search");
+        Gauge.builder("member.search-cache.hit-ratio", cache, c -> c.stats().hitRate()).register(registry);
+    }
+
+    /**
+     * 결과를 정하는 조건 전체. 빈 문자열은 조건이 없는 것과, size 가 없으면 10 과 같게 취급한다.
+     * */
+    @lombok.Value
+    static class SearchKey {
+        String teamName;
+        String username;
+        Integer goe;
+        Integer loe;
+        int size;
+
+        static SearchKey of(MemberSearchCondition condition) {
+            return new SearchKey(
+                    StringUtils.hasText(condition.getTeamName()) ? condition.getTeamName() : null,
+                    StringUtils.hasText(condition.getUsername()) ? condition.getUsername() : null,
+                    condition.getGoe(),
+                    condition.getLoe(),
+                    condition.getSize() != null ? condition.getSize() : 10);
+        }
+
+        boolean matches(MemberSnapshot member, String memberTeamName) {
+            if (member == null) {
+                return false;
+            }
+            if (username != null && !username.equals(member.getUsername())) {
+                return false;
+            }
+            if ((goe != null && member.getAge() < goe) || (loe != null && member.getAge() > loe)) {
+                return false;
+            }
+            if (teamName == null) {
+                return true;
+            }
+            // 팀이 없으면 팀 조건에 맞지 않는다. 이름을 모르면 맞는 것으로 본다.
+            return member.getTeamId() != null && (memberTeamName == null || Objects.equals(teamName, memberTeamName));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package study.querydsl.repository;
+
+import study.querydsl.MemberSearchCondition;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static study.querydsl.repository.MemberSearchPredicates.*;
+
+/**
+ * JPA 를 거치지 않는 경로(R2DBC 등)를 위한 네이티브 SQL.
+ * 어떤 조건을 넣을지는 MemberSearchPredicates.shapeOf 로 판단해서 querydsl 쪽과 같은 규칙을 따른다.
+ * */
+public final class MemberSearchSql {
+
+    public static final String SELECT = "select m.id as member_id, m.username, m.age, t.id as team_id, t.name as team_name"
+            + " from member m left join team t on m.team_id = t.id";
+
+    public static final String COUNT = "select count(*) from member m left join team t on m.team_id = t.id";
+
+    // 조건에 맞는 행을 limit 개까지만 센다. (MemberTotalEstimator)
+    private static final String BOUNDED_COUNT = "select count(*) from (select 1 from member m left join team t on m.team_id = t.id%s limit :limit) bounded";
+
+    private MemberSearchSql() {
+    }
+
+    /**
+     * :teamName, :username, :goe, :loe 이름으로 바인딩한다.
+     * */
+    public static String where(int shape) {
+        StringBuilder where = new StringBuilder();
+        appendIf(where, shape, TEAM_NAME, "t.name = :teamName");
+        appendIf(where, shape, USERNAME, "m.username = :username");
+        appendIf(where, shape, AGE_GOE, "m.age >= :goe");
+        appendIf(where, shape, AGE_LOE, "m.age <= :loe");
+        return where.toString();
+    }
+
+    /**
+     * where(shape) 의 파라미터와 :limit 으로 바인딩한다.
+     * */
+    public static String boundedCount(int shape) {
+        return String.format(BOUNDED_COUNT, where(shape));
+    }
+
+    public static Map<String, Object> parameters(MemberSearchCondition condition) {
+        int shape = shapeOf(condition);
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if ((shape & TEAM_NAME) != 0) {
+            parameters.put("teamName", condition.getTeamName());
+        }
+        if ((shape & USERNAME) != 0) {
+            parameters.put("username", condition.getUsername());
+        }
+        if ((shape & AGE_GOE) != 0) {
+            parameters.put("goe", condition.getGoe());
+        }
+        if ((shape & AGE_LOE) != 0) {
+            parameters.put("loe", condition.getLoe());
+        }
+        return parameters;
+    }
+
+    private static void appendIf(StringBuilder where, int shape, int bit, String predicate) {
+        if ((shape & bit) != 0) {
+            where.append(where.length() == 0 ? " where " : " and ").append(predicate);
+        }
+    }
+}
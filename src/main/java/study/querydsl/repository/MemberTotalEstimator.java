@@ -0,0 +1,67 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.MemberSearchCondition;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static study.querydsl.repository.MemberSearchPredicates.shapeOf;
+
+/**
+ * pagingComplex 의 total 을 정확한 count 대신 근사치로 낸다. (member.paging.total-mode)
+ *
+ * - exact     : 기존처럼 전체 count (MemberPageCounter)
+ * - bounded   : 조건에 맞는 행을 max(count-limit, 현재 페이지 끝 + 1) 개까지만 센다.
+ *               한도에 닿으면 total 은 하한값이지만 다음 페이지 존재 여부는 정확하다.
+ * - estimated : 조건이 없으면 H2 통계(information_schema.tables.row_count_estimate)를 쓰고,
+ *               조건이 있으면 조건별 통계가 없으므로 bounded 와 같이 센다.
+ *               통계가 현재 페이지 끝보다 작으면 (통계가 늦었거나 마지막 페이지 근처) bounded 로 센다.
+ *
+ * 무한 스크롤처럼 정확한 total 이 필요 없는 클라이언트가 매 페이지 전체 count 비용을 내지 않게 한다.
+ * */
+@Component
+public class MemberTotalEstimator {
+
+    public enum Mode {
+        EXACT, BOUNDED, ESTIMATED
+    }
+
+    private static final String ROW_COUNT_ESTIMATE =
+            "select row_count_estimate from information_schema.tables where table_schema = 'PUBLIC' and table_name = 'MEMBER'";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Mode mode;
+    private final long countLimit;
+
+    public MemberTotalEstimator(NamedParameterJdbcTemplate jdbcTemplate,
+                                @Value("${member.paging.total-mode:exact}") String mode,
+                                @Value("${member.paging.count-limit:10000}") long countLimit) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mode = Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        this.countLimit = countLimit;
+    }
+
+    public boolean isExact() {
+        return mode == Mode.EXACT;
+    }
+
+    public long total(MemberSearchCondition condition, Pageable pageable) {
+        int shape = shapeOf(condition);
+        if (mode == Mode.ESTIMATED && shape == 0) {
+            Long estimate = jdbcTemplate.getJdbcTemplate().queryForObject(ROW_COUNT_ESTIMATE, Long.class);
+            // 통계만 믿으면 실제로 있는 다음 페이지를 없다고 답할 수 있다.
+            if (estimate != null && estimate > pageable.getOffset() + pageable.getPageSize()) {
+                return estimate;
+            }
+        }
+
+        Map<String, Object> parameters = MemberSearchSql.parameters(condition);
+        parameters.put("limit", Math.max(countLimit, pageable.getOffset() + pageable.getPageSize() + 1));
+        Long count = jdbcTemplate.queryForObject(MemberSearchSql.boundedCount(shape), parameters, Long.class);
+        return count != null ? count : 0;
+    }
+}
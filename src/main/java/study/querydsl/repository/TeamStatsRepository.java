@@ -0,0 +1,321 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.listener.ChangeType;
+import study.querydsl.listener.MemberChangedEvent;
+import study.querydsl.listener.MemberSnapshot;
+import study.querydsl.listener.TeamChangedEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * 팀별 count / sum / avg / max / min(member.age) 를 메모리에 유지한다.
+ * 조회는 팀 수에 비례하고, member 변경은 커밋된 엔티티 이벤트로 한 건씩 반영한다.
+ *
+ * - 팀마다 나이 -> 인원 수의 다중집합을 두어 삭제되어도 max / min 을 다시 구할 수 있다.
+ * - 기동 후와 벌크 연산 뒤에는 group by 로 다시 만든다. 그동안 들어온 변경은 도착 순서(stamp)를 매겨 모아 둔다.
+ * - group by 가 이미 본 변경을 다시 더하지 않도록, group by 와 같은 스냅샷(SERIALIZABLE 트랜잭션)에서
+ *   변경된 member 의 행을 id 로 읽는다. 그 행을 집계에서 빼고 마지막 변경 후 값을 더하므로 몇 번 적용해도 같다.
+ *   id 조회 중에도 변경이 계속 들어오면 MAX_LOOKUP_PASSES 번까지만 다시 읽고,
+ *   그 뒤에 도착한 변경은 group by 이후에 커밋된 것으로 보고 그대로 적용한다.
+ * */
+@Slf4j
+@Repository
+public class TeamStatsRepository {
+
+    private static final int MAX_LOOKUP_PASSES = 3;
+    private static final int LOOKUP_BATCH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Object rebuildLock = new Object();
+
+    private Map<Long, Stats> teams = new HashMap<>();
+    // 다시 만드는 동안의 변경. 목록 위치가 stamp 다.
+    private List<PendingChange> pending;
+
+    public TeamStatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * groupBy(team.name) 와 같이 이름이 같은 팀은 합친다. 이름 순서로 돌려준다.
+     * */
+    public synchronized List<TeamStatsDto> findAll() {
+        Map<String, Stats> byName = new TreeMap<>();
+        for (Stats stats : teams.values()) {
+            byName.computeIfAbsent(stats.name, Stats::new).merge(stats);
+        }
+        List<TeamStatsDto> result = new ArrayList<>(byName.size());
+        for (Stats stats : byName.values()) {
+            result.add(stats.toDto());
+        }
+        return result;
+    }
+
+    public synchronized TeamStatsDto findByTeamName(String teamName) {
+        Stats merged = new Stats(teamName);
+        for (Stats stats : teams.values()) {
+            if (teamName.equals(stats.name)) {
+                merged.merge(stats);
+            }
+        }
+        return merged.toDto();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        rebuild();
+    }
+
+    @EventListener
+    public void onBulkChanged(MemberBulkChangedEvent event) {
+        rebuild();
+    }
+
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (event.getType() == ChangeType.UPDATE && event.getBefore() == null) {
+            // 이전 값을 모르면 어디서 빼야 할지 알 수 없다.
+            rebuild();
+            return;
+        }
+        MemberSnapshot before = event.getBefore();
+        MemberSnapshot after = event.getAfter();
+        apply(new PendingChange(event.getMemberId(), after, teams -> {
+            removeMember(teams, before);
+            addMember(teams, after);
+        }));
+    }
+
+    @EventListener
+    public void onTeamChanged(TeamChangedEvent event) {
+        Long teamId = event.getTeamId();
+        if (event.getType() == ChangeType.DELETE) {
+            apply(new PendingChange(null, null, teams -> teams.remove(teamId)));
+            return;
+        }
+        String name = event.getNameAfter();
+        apply(new PendingChange(null, null, teams -> team(teams, teamId).name = name));
+    }
+
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+
+            long start = System.nanoTime();
+            Snapshot snapshot = jdbcTemplate.execute((ConnectionCallback<Snapshot>) this::loadSnapshot);
+
+            synchronized (this) {
+                replay(snapshot);
+                teams = snapshot.teams;
+                pending = null;
+            }
+            log.info("team stats rebuilt: {} teams, {} members resolved in {} ms",
+                    snapshot.teams.size(), snapshot.resolved.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // group by 와 변경된 member 의 id 조회가 같은 시점을 읽도록 한 트랜잭션에서 실행한다.
+    private Snapshot loadSnapshot(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        int isolation = connection.getTransactionIsolation();
+        connection.setAutoCommit(false);
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        try {
+            Snapshot snapshot = new Snapshot();
+            // 팀 수 x 서로 다른 나이 수만큼의 행만 읽는다. 멤버가 없는 팀은 age 가 null 인 한 행이다.
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("select t.id, t.name, m.age, count(m.id) from team t"
+                         + " left join member m on m.team_id = t.id group by t.id, t.name, m.age")) {
+                while (rs.next()) {
+                    Stats stats = team(snapshot.teams, rs.getLong(1));
+                    stats.name = rs.getString(2);
+                    int age = rs.getInt(3);
+                    if (!rs.wasNull()) {
+                        stats.add(age, rs.getLong(4));
+                    }
+                }
+            }
+
+            int stamp = 0;
+            for (int pass = 0; pass < MAX_LOOKUP_PASSES; pass++) {
+                List<Long> ids = new ArrayList<>();
+                synchronized (this) {
+                    for (; stamp < pending.size(); stamp++) {
+                        Long memberId = pending.get(stamp).memberId;
+                        if (memberId != null && !snapshot.resolved.containsKey(memberId)) {
+                            snapshot.resolved.put(memberId, null);
+                            ids.add(memberId);
+                        }
+                    }
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+                for (int from = 0; from < ids.size(); from += LOOKUP_BATCH) {
+                    lookup(connection, ids.subList(from, Math.min(ids.size(), from + LOOKUP_BATCH)), snapshot.resolved);
+                }
+            }
+            connection.commit();
+            return snapshot;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setTransactionIsolation(isolation);
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // 스냅샷에 없는 member 는 null 로 남는다.
+    private static void lookup(Connection connection, List<Long> ids, Map<Long, MemberSnapshot> resolved) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select id, age, team_id from member where id in (" + placeholders + ")")) {
+            for (int i = 0; i < ids.size(); i++) {
+                statement.setLong(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    long teamId = rs.getLong(3);
+                    resolved.put(rs.getLong(1), new MemberSnapshot(null, rs.getInt(2), rs.wasNull() ? null : teamId));
+                }
+            }
+        }
+    }
+
+    /**
+     * 스냅샷에서 읽은 member 는 그 행을 빼고 마지막 변경 후 값을 더한다. (이미 본 변경이어도 결과가 같다)
+     * 팀 변경과 id 를 읽지 못한 member 변경은 도착 순서대로 그대로 적용한다.
+     * */
+    private void replay(Snapshot snapshot) {
+        // 삭제로 끝난 member 는 null
+        Map<Long, MemberSnapshot> latest = new HashMap<>();
+        for (PendingChange change : pending) {
+            if (change.memberId != null && snapshot.resolved.containsKey(change.memberId)) {
+                latest.put(change.memberId, change.after);
+            }
+        }
+        snapshot.resolved.forEach((memberId, seen) -> {
+            removeMember(snapshot.teams, seen);
+            addMember(snapshot.teams, latest.get(memberId));
+        });
+        for (PendingChange change : pending) {
+            if (change.memberId == null || !snapshot.resolved.containsKey(change.memberId)) {
+                change.change.accept(snapshot.teams);
+            }
+        }
+    }
+
+    private synchronized void apply(PendingChange change) {
+        change.change.accept(teams);
+        if (pending != null) {
+            pending.add(change);
+        }
+    }
+
+    private static void addMember(Map<Long, Stats> teams, MemberSnapshot member) {
+        if (member != null && member.getTeamId() != null) {
+            team(teams, member.getTeamId()).add(member.getAge());
+        }
+    }
+
+    private static void removeMember(Map<Long, Stats> teams, MemberSnapshot member) {
+        if (member != null && member.getTeamId() != null && !team(teams, member.getTeamId()).remove(member.getAge())) {
+            // 집계와 이벤트가 어긋났다. 다음 rebuild 에서 바로잡힌다.
+            log.warn("team stats out of sync: team {} has no member aged {}", member.getTeamId(), member.getAge());
+        }
+    }
+
+    private static Stats team(Map<Long, Stats> teams, long teamId) {
+        return teams.computeIfAbsent(teamId, id -> new Stats(null));
+    }
+
+    /**
+     * memberId 가 있으면 member 변경이다. after 는 변경 후 값이고 삭제면 null 이다.
+     * */
+    private static class PendingChange {
+        private final Long memberId;
+        private final MemberSnapshot after;
+        private final Consumer<Map<Long, Stats>> change;
+
+        PendingChange(Long memberId, MemberSnapshot after, Consumer<Map<Long, Stats>> change) {
+            this.memberId = memberId;
+            this.after = after;
+            this.change = change;
+        }
+    }
+
+    // group by 결과와, 같은 스냅샷에서 id 로 읽은 member 행 (없으면 null)
+    private static class Snapshot {
+        private final Map<Long, Stats> teams = new HashMap<>();
+        private final Map<Long, MemberSnapshot> resolved = new HashMap<>();
+    }
+
+    private static class Stats {
+        private String name;
+        private long count;
+        private long sum;
+        private final TreeMap<Integer, Long> ages = new TreeMap<>();
+
+        Stats(String name) {
+            this.name = name;
+        }
+
+        void add(int age) {
+            add(age, 1);
+        }
+
+        void add(int age, long members) {
+            count += members;
+            sum += (long) age * members;
+            ages.merge(age, members, Long::sum);
+        }
+
+        // 없는 나이면 false
+        boolean remove(int age) {
+            Long members = ages.get(age);
+            if (members == null) {
+                return false;
+            }
+            count--;
+            sum -= age;
+            if (members == 1) {
+                ages.remove(age);
+            } else {
+                ages.put(age, members - 1);
+            }
+            return true;
+        }
+
+        void merge(Stats other) {
+            other.ages.forEach((age, members) -> add(age, members));
+        }
+
+        TeamStatsDto toDto() {
+            return new TeamStatsDto(name, count, sum,
+                    count > 0 ? (double) sum / count : null,
+                    ages.isEmpty() ? null : ages.lastKey(),
+                    ages.isEmpty() ? null : ages.firstKey());
+        }
+    }
+}
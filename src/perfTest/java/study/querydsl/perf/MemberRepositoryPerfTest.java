@@ -0,0 +1,153 @@
+package study.querydsl.perf;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.MemberSearchCondition;
+import study.querydsl.domain.Member;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJPARepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.QMember.member;
+
+/**
+ * 인메모리 H2 에 member 100만 건(-Dperf.members)을 MemberDataLoader 로 채우고 저장소 연산마다 예산을 건다.
+ * 결과 / count 캐시는 끄고 DB 로 가는 경로만 잰다. 각 연산은 다른 조건으로 한 번 먼저 실행해 둔다.
+ *
+ * ./gradlew perfTest [-Dperf.members=2000000 -Dperf.time-factor=2]
+ * */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:perf;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.url=r2dbc:h2:mem:///perf",
+        "decorator.datasource.enabled=false",
+        "logging.level.org.hibernate.SQL=warn",
+        "member.loader.enabled=true",
+        "member.loader.members=${perf.members:1000000}",
+        "member.loader.teams=100",
+        "member.result-cache.maximum-rows=0",
+        "member.count-cache.maximum-size=0"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MemberRepositoryPerfTest {
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private MemberJPARepository memberJPARepository;
+
+    @Autowired
+    private JPAQueryFactory queryFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long members;
+
+    @BeforeAll
+    public void beforeAll() {
+        members = jdbcTemplate.queryForObject("select count(*) from member", Long.class);
+        assertThat(members).isGreaterThanOrEqualTo(1_000_000L);
+    }
+
+    @Test
+    @DisplayName("search : 팀 + 나이 조건 20건")
+    public void search() {
+        memberRepository.search(condition("team1", 20, 40));
+
+        List<MemberTeamDto> result = PerfBudget.of("search").statements(1).millis(500).allocatedMb(32)
+                .run(jdbcTemplate, () -> memberRepository.search(condition("team5", 30, 40)));
+
+        assertThat(result).hasSize(20);
+    }
+
+    @Test
+    @DisplayName("pagingSimple : count + 50번째 페이지")
+    public void pagingSimple() {
+        memberRepository.pagingSimple(condition("team1", 20, 40), PageRequest.of(50, 20));
+
+        Page<MemberTeamDto> result = PerfBudget.of("pagingSimple").statements(2).millis(2_000).allocatedMb(64)
+                .run(jdbcTemplate, () -> memberRepository.pagingSimple(condition("team5", 30, 40), PageRequest.of(50, 20)));
+
+        assertThat(result.getContent()).hasSize(20);
+    }
+
+    @Test
+    @DisplayName("pagingComplex : content + count + 50번째 페이지")
+    public void pagingComplex() {
+        memberRepository.pagingComplex(condition("team1", 20, 40), PageRequest.of(50, 20));
+
+        Page<MemberTeamDto> result = PerfBudget.of("pagingComplex").statements(2).millis(2_000).allocatedMb(64)
+                .run(jdbcTemplate, () -> memberRepository.pagingComplex(condition("team5", 30, 40), PageRequest.of(50, 20)));
+
+        assertThat(result.getContent()).hasSize(20);
+    }
+
+    @Test
+    @DisplayName("findAllQuerydsl : 전체 엔티티 조회")
+    public void findAllQuerydsl() {
+        List<Member> result = PerfBudget.of("findAllQuerydsl").statements(1).millis(60_000).allocatedMb(3_072)
+                .run(jdbcTemplate, () -> memberJPARepository.findAllQuerydsl());
+
+        assertThat(result).hasSize((int) members);
+    }
+
+    @Test
+    @DisplayName("벌크 update : QuerydslMiddle.bulkUpdate2 (롤백)")
+    public void bulkUpdate() {
+        long affected = inRollback(() -> PerfBudget.of("bulkUpdate").statements(1).millis(30_000).allocatedMb(64)
+                .run(jdbcTemplate, () -> queryFactory
+                        .update(member)
+                        .set(member.age, member.age.add(100))
+                        .where(member.age.lt(28))
+                        .execute()));
+
+        assertThat(affected).isPositive();
+    }
+
+    @Test
+    @DisplayName("벌크 delete : QuerydslMiddle.bulkDelete (롤백)")
+    public void bulkDelete() {
+        long affected = inRollback(() -> PerfBudget.of("bulkDelete").statements(1).millis(30_000).allocatedMb(64)
+                .run(jdbcTemplate, () -> queryFactory
+                        .delete(member)
+                        .where(member.age.lt(28))
+                        .execute()));
+
+        assertThat(affected).isPositive();
+    }
+
+    // 데이터는 다른 테스트가 계속 쓰므로 되돌린다.
+    private long inRollback(Supplier<Long> operation) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            status.setRollbackOnly();
+            return operation.get();
+        });
+    }
+
+    private static MemberSearchCondition condition(String teamName, int goe, int loe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setGoe(goe);
+        condition.setLoe(loe);
+        condition.setSize(20);
+        return condition;
+    }
+}
@@ -0,0 +1,128 @@
+package study.querydsl.perf;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.listener.SqlStatementCounter;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * 작업 하나의 SQL 수, 실행 시간, 할당 바이트(현재 스레드) 예산.
+ * 넘으면 실행한 SQL 과 H2 EXPLAIN 결과를 붙여 실패시킨다.
+ *
+ * 시간 예산은 장비마다 다르므로 -Dperf.time-factor 로 늘릴 수 있다.
+ * */
+final class PerfBudget {
+
+    private static final double TIME_FACTOR = Double.parseDouble(System.getProperty("perf.time-factor", "1.0"));
+    private static final int MAX_REPORTED_STATEMENTS = 10;
+
+    private final String name;
+    private long statements = Long.MAX_VALUE;
+    private long millis = Long.MAX_VALUE;
+    private long allocatedBytes = Long.MAX_VALUE;
+
+    private PerfBudget(String name) {
+        this.name = name;
+    }
+
+    static PerfBudget of(String name) {
+        return new PerfBudget(name);
+    }
+
+    PerfBudget statements(long statements) {
+        this.statements = statements;
+        return this;
+    }
+
+    PerfBudget millis(long millis) {
+        this.millis = (long) (millis * TIME_FACTOR);
+        return this;
+    }
+
+    PerfBudget allocatedMb(long megabytes) {
+        this.allocatedBytes = megabytes * 1024 * 1024;
+        return this;
+    }
+
+    <T> T run(JdbcTemplate jdbcTemplate, Supplier<T> operation) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        T result;
+        List<String> executed;
+        long elapsedMillis;
+        long allocated;
+        try (SqlStatementCounter.Capture capture = SqlStatementCounter.capture()) {
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            result = operation.get();
+            elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            executed = new ArrayList<>(capture.statements());
+        }
+
+        System.out.printf("[perf] %-24s %4d statements %8d ms %10.1f MB%n", name, executed.size(), elapsedMillis, allocated / (1024.0 * 1024));
+
+        List<String> exceeded = new ArrayList<>();
+        if (executed.size() > statements) {
+            exceeded.add(String.format("statements %d > %d", executed.size(), statements));
+        }
+        if (elapsedMillis > millis) {
+            exceeded.add(String.format("time %d ms > %d ms", elapsedMillis, millis));
+        }
+        if (allocated > allocatedBytes) {
+            exceeded.add(String.format("allocated %.1f MB > %.1f MB", allocated / (1024.0 * 1024), allocatedBytes / (1024.0 * 1024)));
+        }
+        if (!exceeded.isEmpty()) {
+            fail("%s 예산 초과: %s%n%s", name, String.join(", ", exceeded), explain(jdbcTemplate, executed));
+        }
+        return result;
+    }
+
+    // 같은 SQL 은 한 번만 보여준다. 파라미터는 null 로 바인딩한다. (H2 는 값에 따라 계획을 바꾸지 않는다)
+    private static String explain(JdbcTemplate jdbcTemplate, List<String> executed) {
+        StringBuilder report = new StringBuilder();
+        int reported = 0;
+        for (String sql : new LinkedHashSet<>(executed)) {
+            if (reported++ == MAX_REPORTED_STATEMENTS) {
+                report.append("... ").append(executed.size()).append(" statements in total\n");
+                break;
+            }
+            report.append("SQL : ").append(sql).append('\n');
+            report.append("PLAN: ").append(plan(jdbcTemplate, sql)).append("\n\n");
+        }
+        return report.toString();
+    }
+
+    private static String plan(JdbcTemplate jdbcTemplate, String sql) {
+        try {
+            return jdbcTemplate.execute((Connection connection) -> {
+                try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+                    ParameterMetaData parameters = statement.getParameterMetaData();
+                    for (int i = 1; i <= parameters.getParameterCount(); i++) {
+                        statement.setObject(i, null);
+                    }
+                    StringBuilder plan = new StringBuilder();
+                    try (ResultSet rows = statement.executeQuery()) {
+                        while (rows.next()) {
+                            plan.append(rows.getString(1));
+                        }
+                    }
+                    return plan.toString();
+                }
+            });
+        } catch (RuntimeException e) {
+            return "(explain 실패: " + e.getMessage() + ")";
+        }
+    }
+}
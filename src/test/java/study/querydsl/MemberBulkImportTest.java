@@ -0,0 +1,98 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 적재는 chunk 마다 커밋하므로 테스트 트랜잭션으로 감쌀 수 없다. 끝나면 직접 지운다.
+ * */
+@SpringBootTest(properties = "member.import.chunk-size=3")
+@AutoConfigureMockMvc
+public class MemberBulkImportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void afterEach() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'importMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'importTeam%'").executeUpdate();
+        });
+    }
+
+    @Test
+    @DisplayName("NDJSON 을 chunk 로 나눠 넣고, 없는 팀은 한 번만 만든다")
+    public void importTest() throws Exception {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> em.persist(new Team("importTeamA")));
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            String teamName = i % 3 == 0 ? null : i % 3 == 1 ? "importTeamA" : "importTeamB";
+            body.append("{\"username\":\"importMember").append(i).append("\",\"age\":").append(20 + i)
+                    .append(teamName != null ? ",\"teamName\":\"" + teamName + "\"" : "")
+                    .append("}\n");
+        }
+
+        mockMvc.perform(post("/v1/members/bulk").contentType("application/x-ndjson").content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows").value(8))
+                .andExpect(jsonPath("$.teamsCreated").value(1));
+
+        List<Object[]> rows = new TransactionTemplate(transactionManager).execute(status -> em.createQuery(
+                "select m.username, m.age, t.name from Member m left join m.team t" +
+                        " where m.username like 'importMember%' order by m.username", Object[].class)
+                .getResultList());
+        assertThat(rows).hasSize(8);
+        assertThat(rows.get(0)).containsExactly("importMember0", 20, null);
+        assertThat(rows.get(1)).containsExactly("importMember1", 21, "importTeamA");
+        assertThat(rows.get(2)).containsExactly("importMember2", 22, "importTeamB");
+
+        Long teamBCount = new TransactionTemplate(transactionManager).execute(status -> em
+                .createQuery("select count(t) from Team t where t.name = 'importTeamB'", Long.class)
+                .getSingleResult());
+        assertThat(teamBCount).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("age 가 없는 줄은 줄 번호와 함께 400 으로 알리고, 앞 chunk 까지만 남는다")
+    public void invalidLineTest() throws Exception {
+        String body = "{\"username\":\"importMember0\",\"age\":20}\n"
+                + "{\"username\":\"importMember1\",\"age\":21}\n"
+                + "{\"username\":\"importMember2\",\"age\":22}\n"
+                + "{\"username\":\"importMember3\",\"age\":23}\n"
+                + "{\"username\":\"importMember4\"}\n";
+
+        mockMvc.perform(post("/v1/members/bulk").contentType("application/x-ndjson").content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(status().reason(startsWith("line 5:")));
+
+        Long imported = new TransactionTemplate(transactionManager).execute(status -> em
+                .createQuery("select count(m) from Member m where m.username like 'importMember%'", Long.class)
+                .getSingleResult());
+        assertThat(imported).isEqualTo(3);
+    }
+}
@@ -0,0 +1,116 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 벌크 연산은 chunk 마다 커밋하므로 테스트 트랜잭션으로 감쌀 수 없다. 끝나면 직접 지운다.
+ * */
+@SpringBootTest(properties = "member.bulk.chunk-size=3")
+public class MemberBulkOperationsTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    private TransactionTemplate transactionTemplate;
+    private Long teamBId;
+
+    @BeforeEach
+    public void beforeEach() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        teamBId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("bulkTeamA");
+            Team teamB = new Team("bulkTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("bulkMember" + i, 10 + i, i < 7 ? teamA : teamB));
+            }
+            return teamB.getId();
+        });
+    }
+
+    @AfterEach
+    public void afterEach() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'bulkMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'bulkTeam%'").executeUpdate();
+        });
+    }
+
+    @Test
+    @DisplayName("벌크 update 는 조건에 맞는 행만 chunk 로 나눠 바꾼다")
+    public void bulkAddAgeTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("bulkTeamA");
+        condition.setGoe(12);
+
+        long affected = memberRepository.bulkAddAge(condition, 100);
+
+        assertThat(affected).isEqualTo(5);
+        List<Integer> ages = transactionTemplate.execute(status -> em
+                .createQuery("select m.age from Member m where m.username like 'bulkMember%' order by m.username", Integer.class)
+                .getResultList());
+        assertThat(ages).containsExactly(10, 11, 112, 113, 114, 115, 116, 17, 18, 19);
+    }
+
+    @Test
+    @DisplayName("벌크 팀 변경 뒤 2차 캐시에 낡은 팀이 남지 않는다")
+    public void bulkChangeTeamTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("bulkTeamA");
+        condition.setLoe(11);
+
+        long affected = memberRepository.bulkChangeTeam(condition, teamBId);
+
+        assertThat(affected).isEqualTo(2);
+        Integer size = transactionTemplate.execute(status -> em.find(Team.class, teamBId).getMembers().size());
+        assertThat(size).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("벌크 delete")
+    public void bulkDeleteTest() {
+        // 다른 테스트 데이터를 지우지 않도록 팀으로 범위를 좁힌다.
+        long affected = 0;
+        for (String teamName : new String[]{"bulkTeamA", "bulkTeamB"}) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName(teamName);
+            condition.setGoe(15);
+            affected += memberRepository.bulkDelete(condition);
+        }
+
+        assertThat(affected).isEqualTo(5);
+        assertThat(memberRepository.findAll()).extracting("username")
+                .doesNotContain("bulkMember5", "bulkMember9");
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안에서는 호출할 수 없다")
+    public void bulkInTransactionTest() {
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(
+                status -> memberRepository.bulkDelete(new MemberSearchCondition())))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
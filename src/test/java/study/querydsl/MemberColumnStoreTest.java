@@ -0,0 +1,142 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.listener.SqlStatementCounter;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 읽기 모델은 커밋된 변경만 반영하므로 테스트 트랜잭션으로 감싸지 않는다. 끝나면 직접 지운다.
+ * */
+@SpringBootTest(properties = "member.read-model.enabled=true")
+public class MemberColumnStoreTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    private TransactionTemplate transactionTemplate;
+    private Long member1Id;
+
+    @BeforeEach
+    public void beforeEach() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        member1Id = transactionTemplate.execute(status -> {
+            Team teamA = new Team("columnTeamA");
+            Team teamB = new Team("columnTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("columnMember1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("columnMember2", 20, teamA));
+            em.persist(new Member("columnMember3", 30, teamB));
+            em.persist(new Member("columnMember4", 40, teamB));
+            return member1.getId();
+        });
+    }
+
+    @AfterEach
+    public void afterEach() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'columnMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'columnTeam%'").executeUpdate();
+        });
+    }
+
+    @Test
+    @DisplayName("커밋된 데이터는 SQL 없이 답한다")
+    public void searchTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("columnTeamB");
+        condition.setGoe(35);
+
+        long before = SqlStatementCounter.current();
+        List<MemberTeamDto> result = memberRepository.search(condition);
+        Page<MemberTeamDto> page = memberRepository.pagingComplex(condition, PageRequest.of(0, 10));
+
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(0);
+        assertThat(result).extracting("username").containsExactly("columnMember4");
+        assertThat(result.get(0).getTeamName()).isEqualTo("columnTeamB");
+        assertThat(page.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("엔티티 변경은 커밋 후에 반영된다")
+    public void entityChangeTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("columnTeamA");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member1 = em.find(Member.class, member1Id);
+            member1.setAge(99);
+
+            // 커밋 전에는 JPA 로 조회해서 방금 바꾼 값이 보인다.
+            assertThat(memberRepository.search(condition)).extracting("age").contains(99);
+        });
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactlyInAnyOrder(99, 20);
+
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, member1Id)));
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("columnMember2");
+    }
+
+    @Test
+    @DisplayName("삭제 뒤에도 페이지는 id 순서를 지킨다")
+    public void pageOrderAfterDeleteTest() {
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, member1Id)));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("columnTeamB");
+        Page<MemberTeamDto> first = memberRepository.pagingSimple(condition, PageRequest.of(0, 1));
+        Page<MemberTeamDto> second = memberRepository.pagingSimple(condition, PageRequest.of(1, 1));
+
+        assertThat(first.getContent()).extracting("username").containsExactly("columnMember3");
+        assertThat(second.getContent()).extracting("username").containsExactly("columnMember4");
+    }
+
+    @Test
+    @DisplayName("벌크 연산 뒤에는 다시 적재한다")
+    public void bulkChangeTest() {
+        transactionTemplate.executeWithoutResult(status -> em
+                .createQuery("update Member m set m.age = m.age + 1 where m.username like 'columnMember%'")
+                .executeUpdate());
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("columnTeamB");
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactlyInAnyOrder(31, 41);
+    }
+
+    @Test
+    @DisplayName("id 로 거는 벌크 update 도 벌크 연산으로 보고 다시 적재한다")
+    public void bulkUpdateByIdTest() {
+        transactionTemplate.executeWithoutResult(status -> em
+                .createQuery("update Member m set m.age = :age where m.id = :id")
+                .setParameter("age", 77)
+                .setParameter("id", member1Id)
+                .executeUpdate());
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("columnTeamA");
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactlyInAnyOrder(77, 20);
+    }
+}
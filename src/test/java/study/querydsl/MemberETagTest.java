@@ -0,0 +1,80 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Team;
+import study.querydsl.listener.SqlStatementCounter;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 버전은 커밋 후에 올라가므로 테스트 트랜잭션으로 감싸지 않는다.
+ * */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MemberETagTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void afterEach() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> em
+                .createQuery("delete from Team t where t.name = 'eTagTeam'")
+                .executeUpdate());
+    }
+
+    @Test
+    @DisplayName("같은 조건에 같은 ETag 를 보내면 쿼리 없이 304 를 돌려준다")
+    public void notModifiedTest() throws Exception {
+        String eTag = mockMvc.perform(get("/v3/members").param("teamName", "teamA").param("page", "0"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).startsWith("W/\"");
+
+        // 파라미터 순서가 달라도 같은 요청이다. 쿼리를 실행하지 않는다.
+        long before = SqlStatementCounter.current();
+        mockMvc.perform(get("/v3/members").param("page", "0").param("teamName", "teamA")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(0);
+
+        // 다른 조건이면 ETag 도 다르다.
+        mockMvc.perform(get("/v3/members").param("teamName", "teamB").param("page", "0")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("커밋 후에는 ETag 가 바뀐다")
+    public void modifiedAfterCommitTest() throws Exception {
+        String eTag = mockMvc.perform(get("/v2/members").param("teamName", "eTagTeam"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> em.persist(new Team("eTagTeam")));
+
+        String newETag = mockMvc.perform(get("/v2/members").param("teamName", "eTagTeam")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(newETag).isNotEqualTo(eTag);
+    }
+}
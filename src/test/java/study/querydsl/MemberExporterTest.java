@@ -0,0 +1,140 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberColumnarFile;
+import study.querydsl.repository.MemberExporter;
+
+import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 내보내기는 StatelessSession 으로 커밋된 데이터를 읽으므로 테스트 트랜잭션으로 감쌀 수 없다. 끝나면 직접 지운다.
+ * range-size 를 작게 잡아 범위 여러 개가 병렬로 쓰이게 한다.
+ * */
+@SpringBootTest(properties = {"member.export.range-size=3", "member.export.parallelism=4"})
+public class MemberExporterTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberExporter memberExporter;
+
+    @TempDir
+    Path directory;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void beforeEach() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("exportTeamA");
+            Team teamB = new Team("exportTeam,\"B\"");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 20; i++) {
+                em.persist(new Member("exportMember" + (i % 7), 10 + i, i % 3 == 0 ? null : i % 3 == 1 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void afterEach() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'exportMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'exportTeam%'").executeUpdate();
+        });
+    }
+
+    @Test
+    @DisplayName("컬럼 파일로 내보내면 id 순서로 전체 member 를 다시 읽을 수 있다")
+    public void columnarTest() throws Exception {
+        Path file = directory.resolve("members.mbrc");
+
+        MemberExporter.Result result = memberExporter.export(file, MemberExporter.Format.COLUMNAR);
+
+        List<MemberTeamDto> read = new ArrayList<>();
+        long rows = MemberColumnarFile.read(file, read::add);
+        List<MemberTeamDto> expected = allMembers();
+        assertThat(result.getRows()).isEqualTo(expected.size());
+        assertThat(result.getRanges()).isGreaterThan(1);
+        assertThat(rows).isEqualTo(expected.size());
+        assertThat(read).isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("이름이 null 인 팀은 컬럼 파일에서도 null 로 읽힌다")
+    public void columnarNullTeamNameTest() throws Exception {
+        Long teamId = transactionTemplate.execute(status -> {
+            Team unnamed = new Team(null);
+            em.persist(unnamed);
+            em.persist(new Member("exportMemberUnnamed", 99, unnamed));
+            return unnamed.getId();
+        });
+        try {
+            Path file = directory.resolve("members.mbrc");
+            memberExporter.export(file, MemberExporter.Format.COLUMNAR);
+
+            List<MemberTeamDto> read = new ArrayList<>();
+            MemberColumnarFile.read(file, read::add);
+            MemberTeamDto unnamed = read.stream().filter(dto -> "exportMemberUnnamed".equals(dto.getUsername())).findFirst().get();
+            assertThat(unnamed.getTeamId()).isEqualTo(teamId);
+            assertThat(unnamed.getTeamName()).isNull();
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                em.createQuery("delete from Member m where m.username = 'exportMemberUnnamed'").executeUpdate();
+                em.createQuery("delete from Team t where t.id = :id").setParameter("id", teamId).executeUpdate();
+            });
+        }
+    }
+
+    @Test
+    @DisplayName("CSV 로 내보내면 헤더 다음에 id 순서로 한 줄씩 쓴다")
+    public void csvTest() throws Exception {
+        Path file = directory.resolve("members.csv");
+
+        MemberExporter.Result result = memberExporter.export(file, MemberExporter.Format.CSV);
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        List<MemberTeamDto> expected = allMembers();
+        assertThat(result.getRows()).isEqualTo(expected.size());
+        assertThat(lines).hasSize(expected.size() + 1);
+        assertThat(lines.get(0)).isEqualTo("member_id,username,age,team_id,team_name");
+        // 쉼표, 따옴표가 든 값은 따옴표로 감싸고, 팀이 없으면 빈 칸으로 둔다.
+        MemberTeamDto quoted = expected.stream().filter(dto -> "exportTeam,\"B\"".equals(dto.getTeamName())).findFirst().get();
+        MemberTeamDto teamless = expected.stream().filter(dto -> dto.getTeamId() == null).findFirst().get();
+        assertThat(lines).contains(
+                quoted.getMemberId() + "," + quoted.getUsername() + "," + quoted.getAge() + "," + quoted.getTeamId() + ",\"exportTeam,\"\"B\"\"\"",
+                teamless.getMemberId() + "," + teamless.getUsername() + "," + teamless.getAge() + ",,");
+        // 범위별 임시 파일은 남기지 않는다.
+        assertThat(Files.list(directory)).hasSize(1);
+    }
+
+    private List<MemberTeamDto> allMembers() {
+        return transactionTemplate.execute(status -> em.createQuery(
+                "select new study.querydsl.dto.MemberTeamDto(m.id, m.username, m.age, t.id, t.name)" +
+                        " from Member m left join m.team t order by m.id", MemberTeamDto.class)
+                .getResultList());
+    }
+}
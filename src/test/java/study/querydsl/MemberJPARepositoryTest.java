@@ -8,10 +8,12 @@ import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.domain.Member;
 import study.querydsl.domain.Team;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.listener.SqlStatementCounter;
 import study.querydsl.repository.MemberJPARepository;
 
 import javax.persistence.EntityManager;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -60,6 +62,30 @@ class MemberJPARepositoryTest {
         assertThat(findMembersWithName).containsExactly(member);
     }
 
+    @Test
+    @DisplayName("id 목록 조회")
+    public void findAllByIdsTest() {
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        Member member3 = new Member("member3", 30);
+        memberJPARepository.save(member1);
+        memberJPARepository.save(member2);
+        memberJPARepository.save(member3);
+        em.flush();
+        em.clear();
+
+        // 영속성 컨텍스트에 있는 member1 은 다시 조회하지 않는다.
+        Member managed = em.find(Member.class, member1.getId());
+        long before = SqlStatementCounter.current();
+
+        List<Member> findMembers = memberJPARepository.findAllByIds(
+                Arrays.asList(member3.getId(), member1.getId(), -1L, member2.getId(), member1.getId()));
+
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(1);
+        assertThat(findMembers).extracting("username").containsExactly("member3", "member1", "member2");
+        assertThat(findMembers.get(1)).isSameAs(managed);
+    }
+
     @Test
     @DisplayName("동적 쿼리 테스트")
     public void searchTest() {
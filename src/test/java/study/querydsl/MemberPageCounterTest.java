@@ -0,0 +1,159 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberPageCounter;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchQueryTemplates;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 병렬 count 는 별도 커넥션으로 실행하므로 테스트 트랜잭션으로 감싸지 않는다. 끝나면 직접 지운다.
+ * */
+@SpringBootTest(properties = "member.paging.parallel-count=true")
+public class MemberPageCounterTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private MemberSearchQueryTemplates memberSearchQueryTemplates;
+
+    @Autowired
+    private MemberCountCache memberCountCache;
+
+    private TransactionTemplate transactionTemplate;
+    private MemberSearchCondition condition;
+
+    @BeforeEach
+    public void beforeEach() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team team = new Team("countTeam");
+            em.persist(team);
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("countMember" + i, 10 + i, team));
+            }
+        });
+        memberCountCache.invalidateAll();
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("countTeam");
+    }
+
+    @AfterEach
+    public void afterEach() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'countMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name = 'countTeam'").executeUpdate();
+        });
+    }
+
+    @Test
+    @DisplayName("content 와 동시에 실행한 count 를 기다려 total 로 쓴다")
+    public void joinedTotalTest() {
+        Page<MemberTeamDto> page = memberRepository.pagingComplex(condition, PageRequest.of(1, 2));
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(memberCountCache.getIfPresent(condition)).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("트랜잭션 밖에서는 두 번째 count 를 캐시에서 답한다")
+    public void cachedTotalTest() {
+        memberRepository.pagingComplex(condition, PageRequest.of(1, 2));
+        long hitCount = memberCountCache.stats().hitCount();
+
+        Page<MemberTeamDto> page = memberRepository.pagingComplex(condition, PageRequest.of(1, 2));
+
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        // start() 의 확인과 getAsLong() 이 모두 캐시에서 읽는다.
+        assertThat(memberCountCache.stats().hitCount()).isEqualTo(hitCount + 2);
+    }
+
+    @Test
+    @DisplayName("PageableExecutionUtils 가 count 를 쓰지 않으면 실행 전에 취소된다")
+    public void cancelledWhenSkippedTest() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // 하나뿐인 스레드를 막아 두어 count 가 대기열에 남게 한다.
+            executor.submit(() -> {
+                release.await();
+                return null;
+            });
+            MemberPageCounter counter = counter(executor);
+
+            // 첫 페이지가 size 보다 작으면 total 을 content 크기로 정하고 count 를 부르지 않는다.
+            try (MemberPageCounter.PendingCount count = counter.start(condition)) {
+                assertThat(count).isNotNull();
+            }
+            release.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+            // 취소된 count 는 실행되지 않았으므로 캐시에도 없다.
+            assertThat(memberCountCache.getIfPresent(condition)).isNull();
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("스레드 풀이 받아 주지 않으면 호출한 스레드에서 count 한다")
+    public void rejectedFallbackTest() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        try (MemberPageCounter.PendingCount count = counter(executor).start(condition)) {
+            assertThat(count.getAsLong()).isEqualTo(5);
+        }
+    }
+
+    @Test
+    @DisplayName("쓰기 트랜잭션 안에서는 커밋 전 변경도 센다")
+    public void writeTransactionTest() {
+        Page<MemberTeamDto> page = transactionTemplate.execute(status -> {
+            Team team = em.createQuery("select t from Team t where t.name = 'countTeam'", Team.class).getSingleResult();
+            em.persist(new Member("countMember5", 20, team));
+            return memberRepository.pagingComplex(condition, PageRequest.of(1, 2));
+        });
+
+        assertThat(page.getTotalElements()).isEqualTo(6);
+    }
+
+    private MemberPageCounter counter(ExecutorService executor) {
+        return new MemberPageCounter(entityManagerFactory, memberSearchQueryTemplates, memberCountCache, executor, true);
+    }
+}
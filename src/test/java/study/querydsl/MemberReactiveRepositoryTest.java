@@ -0,0 +1,98 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberReactiveRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * R2DBC 는 별도 커넥션을 쓰므로 롤백되는 테스트 트랜잭션의 데이터를 보지 못한다.
+ * 그래서 커밋하고 끝나면 지운다.
+ * */
+@SpringBootTest
+public class MemberReactiveRepositoryTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private MemberReactiveRepository memberReactiveRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void beforeEach() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("reactiveTeamA");
+            Team teamB = new Team("reactiveTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("reactiveMember" + i, 20 + i, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void afterEach() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'reactiveMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'reactiveTeam%'").executeUpdate();
+        });
+    }
+
+    @Test
+    @DisplayName("R2DBC 조회는 JPA 조회와 같은 결과를 돌려준다")
+    public void searchTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("reactiveTeamA");
+        condition.setGoe(22);
+        condition.setLoe(26);
+        condition.setSize(100);
+
+        List<MemberTeamDto> reactive = memberReactiveRepository.search(condition).collectList().block();
+        List<MemberTeamDto> blocking = transactionTemplate.execute(status -> memberRepository.search(condition));
+
+        assertThat(reactive).extracting("username")
+                .containsExactlyInAnyOrder("reactiveMember2", "reactiveMember4", "reactiveMember6");
+        assertThat(reactive).containsExactlyInAnyOrderElementsOf(blocking);
+    }
+
+    @Test
+    @DisplayName("R2DBC 페이징은 content 와 total 을 함께 돌려준다")
+    public void pagingComplexTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("reactiveTeamB");
+
+        Page<MemberTeamDto> first = memberReactiveRepository.pagingComplex(condition, PageRequest.of(0, 3)).block();
+        Page<MemberTeamDto> last = memberReactiveRepository.pagingComplex(condition, PageRequest.of(1, 3)).block();
+
+        assertThat(first.getContent()).hasSize(3);
+        assertThat(first.getTotalElements()).isEqualTo(5);
+        assertThat(last.getContent()).hasSize(2);
+        assertThat(last.getTotalElements()).isEqualTo(5);
+    }
+}
@@ -4,13 +4,24 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.domain.Member;
 import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberSeekCursor;
+import study.querydsl.dto.MemberSeekPage;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberIndexAdvisor;
+import study.querydsl.repository.MemberQueryMetrics;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTotalEstimator;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -21,6 +32,18 @@ public class MemberRepositoryTest {
     @Autowired
     private MemberRepository memberRepository;
 
+    @Autowired
+    private MemberCountCache memberCountCache;
+
+    @Autowired
+    private MemberQueryMetrics memberQueryMetrics;
+
+    @Autowired
+    private MemberIndexAdvisor memberIndexAdvisor;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
     @Autowired
     private EntityManager em;
 
@@ -78,4 +101,226 @@ public class MemberRepositoryTest {
         List<MemberTeamDto> result3 = memberRepository.search(condition3);
         assertThat(result3).extracting("username").containsExactly("member2", "member3", "member4");
     }
+
+    @Test
+    @DisplayName("seek 페이징 테스트")
+    public void pagingSeekTest() {
+        Team teamA = new Team("seekTeam");
+        em.persist(teamA);
+
+        em.persist(new Member("seek1", 30, teamA));
+        em.persist(new Member("seek2", 10, teamA));
+        em.persist(new Member("seek3", 20, teamA));
+        em.persist(new Member("seek4", 10, teamA));
+        em.persist(new Member("seek5", 40, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("seekTeam");
+
+        MemberSeekPage page1 = memberRepository.pagingSeek(condition, MemberSeekCursor.first(MemberSeekCursor.SortKey.ID), 2);
+        assertThat(page1.getContent()).extracting("username").containsExactly("seek1", "seek2");
+        assertThat(page1.isHasNext()).isTrue();
+
+        MemberSeekPage page2 = memberRepository.pagingSeek(condition, MemberSeekCursor.decode(page1.getNext()), 2);
+        assertThat(page2.getContent()).extracting("username").containsExactly("seek3", "seek4");
+
+        MemberSeekPage page3 = memberRepository.pagingSeek(condition, MemberSeekCursor.decode(page2.getNext()), 2);
+        assertThat(page3.getContent()).extracting("username").containsExactly("seek5");
+        assertThat(page3.getNext()).isNull();
+
+
+        // 나이순 정렬, 같은 나이는 id 순
+        MemberSeekPage byAge1 = memberRepository.pagingSeek(condition, MemberSeekCursor.first(MemberSeekCursor.SortKey.AGE), 3);
+        assertThat(byAge1.getContent()).extracting("username").containsExactly("seek2", "seek4", "seek3");
+
+        MemberSeekPage byAge2 = memberRepository.pagingSeek(condition, MemberSeekCursor.decode(byAge1.getNext()), 3);
+        assertThat(byAge2.getContent()).extracting("username").containsExactly("seek1", "seek5");
+        assertThat(byAge2.isHasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("slice 페이징 테스트")
+    public void searchSliceTest() {
+        Team team = new Team("sliceTeam");
+        em.persist(team);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("slice" + i, 10 + i, team));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("sliceTeam");
+
+        Slice<MemberTeamDto> slice1 = memberRepository.searchSlice(condition, PageRequest.of(0, 2));
+        assertThat(slice1.getContent()).hasSize(2);
+        assertThat(slice1.hasNext()).isTrue();
+
+        Slice<MemberTeamDto> slice3 = memberRepository.searchSlice(condition, PageRequest.of(2, 2));
+        assertThat(slice3.getContent()).hasSize(1);
+        assertThat(slice3.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("근사 total 은 한도까지만 세되 다음 페이지 여부는 맞춘다")
+    public void boundedTotalTest() {
+        Team team = new Team("boundedTeam");
+        em.persist(team);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("bounded" + i, 10 + i, team));
+        }
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("boundedTeam");
+        MemberTotalEstimator bounded = new MemberTotalEstimator(namedParameterJdbcTemplate, "bounded", 3);
+
+        assertThat(bounded.total(condition, PageRequest.of(0, 1))).isEqualTo(3);
+        assertThat(bounded.total(condition, PageRequest.of(2, 2))).isEqualTo(5);
+
+        MemberTotalEstimator estimated = new MemberTotalEstimator(namedParameterJdbcTemplate, "estimated", 3);
+        assertThat(estimated.total(condition, PageRequest.of(0, 1))).isEqualTo(3);
+
+        // 통계가 요청한 페이지 끝에 못 미치면 bounded 로 센다.
+        Long estimate = namedParameterJdbcTemplate.getJdbcTemplate().queryForObject(
+                "select row_count_estimate from information_schema.tables where table_schema = 'PUBLIC' and table_name = 'MEMBER'", Long.class);
+        Long actual = namedParameterJdbcTemplate.getJdbcTemplate().queryForObject("select count(*) from member", Long.class);
+        assertThat(estimated.total(new MemberSearchCondition(), PageRequest.of(estimate.intValue(), 1)))
+                .isEqualTo(Math.min(actual, Math.max(3, estimate + 2)));
+    }
+
+    @Test
+    @DisplayName("쓰기 트랜잭션 안의 count 는 캐시를 거치지 않는다")
+    public void pagingComplexCountCacheTest() {
+        Team team = new Team("countTeam");
+        em.persist(team);
+        em.persist(new Member("count1", 10, team));
+        em.persist(new Member("count2", 20, team));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("countTeam");
+        PageRequest pageRequest = PageRequest.of(0, 1);
+
+        long hitCount = memberCountCache.stats().hitCount();
+
+        Page<MemberTeamDto> result1 = memberRepository.pagingComplex(condition, pageRequest);
+        assertThat(result1.getTotalElements()).isEqualTo(2);
+
+        Page<MemberTeamDto> result2 = memberRepository.pagingComplex(condition, pageRequest);
+        assertThat(result2.getTotalElements()).isEqualTo(2);
+        // 커밋 전 count 는 다른 트랜잭션에 보이면 안 된다.
+        assertThat(memberCountCache.stats().hitCount()).isEqualTo(hitCount);
+
+        // flush 하지 않아도 count 쿼리 전의 auto flush 로 보인다.
+        em.persist(new Member("count3", 30, team));
+
+        Page<MemberTeamDto> result3 = memberRepository.pagingComplex(condition, pageRequest);
+        assertThat(result3.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("검색 결과 스트리밍 테스트")
+    public void searchStreamTest() {
+        Team team = new Team("streamTeam");
+        em.persist(team);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("stream" + i, i * 10, team));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("streamTeam");
+        condition.setGoe(50);
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        memberRepository.searchStream(condition, 2, result::add);
+
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("stream5", "stream6", "stream7", "stream8", "stream9");
+        assertThat(result).extracting("teamName").containsOnly("streamTeam");
+    }
+
+    @Test
+    @DisplayName("조건 모양별 쿼리 템플릿 테스트")
+    public void searchTemplateShapeTest() {
+        Team teamA = new Team("shapeTeamA");
+        Team teamB = new Team("shapeTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("shape1", 10, teamA));
+        em.persist(new Member("shape2", 20, teamA));
+        em.persist(new Member("shape3", 20, teamB));
+        em.persist(new Member("shape4", 40, teamB));
+
+        // goe 와 loe 가 같은 값이어도 파라미터가 각각 바인딩되어야 한다.
+        MemberSearchCondition condition1 = new MemberSearchCondition();
+        condition1.setGoe(20);
+        condition1.setLoe(20);
+        condition1.setSize(100);
+        assertThat(memberRepository.search(condition1)).extracting("username").contains("shape2", "shape3").doesNotContain("shape1", "shape4");
+
+        MemberSearchCondition condition2 = new MemberSearchCondition();
+        condition2.setTeamName("shapeTeamB");
+        condition2.setUsername("shape4");
+        condition2.setGoe(30);
+        assertThat(memberRepository.search(condition2)).extracting("username").containsExactly("shape4");
+
+        MemberSearchCondition condition3 = new MemberSearchCondition();
+        condition3.setTeamName("shapeTeamA");
+        condition3.setLoe(15);
+        assertThat(memberRepository.pagingSimple(condition3, PageRequest.of(0, 10)).getContent())
+                .extracting("username").containsExactly("shape1");
+
+        MemberSearchCondition condition4 = new MemberSearchCondition();
+        condition4.setUsername("nobody");
+        Page<MemberTeamDto> empty = memberRepository.pagingSimple(condition4, PageRequest.of(0, 10));
+        assertThat(empty.getTotalElements()).isZero();
+        assertThat(empty.getContent()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("조건 모양별 지표 테스트")
+    public void queryMetricsTest() {
+        Team team = new Team("metricTeam");
+        em.persist(team);
+        em.persist(new Member("metric1", 10, team));
+        em.persist(new Member("metric2", 20, team));
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("metricTeam");
+        condition.setGoe(10);
+
+        MemberQueryMetrics.ShapeMeters meters = memberQueryMetrics.meters("search", condition);
+        assertThat(meters.getShape()).isEqualTo("teamName+goe");
+        assertThat(meters.isSized()).isFalse();
+
+        long calls = meters.getCalls();
+        long rows = (long) meters.getRows().totalAmount();
+
+        memberRepository.search(condition);
+
+        assertThat(meters.getCalls()).isEqualTo(calls + 1);
+        assertThat((long) meters.getRows().totalAmount()).isEqualTo(rows + 2);
+        assertThat(meters.getStatements().max()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("관찰한 조건 모양으로 실행 계획을 본다")
+    public void indexAdvisorTest() {
+        em.persist(new Member("advisor1", 10));
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("advisor1");
+        memberRepository.search(condition);
+
+        MemberIndexAdvisor.Advice advice = memberIndexAdvisor.report().stream()
+                .filter(a -> a.getShape().equals("username") && a.getSort().equals(MemberIndexAdvisor.UNSORTED))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("기록 되지 않음"));
+
+        assertThat(advice.getCalls()).isGreaterThanOrEqualTo(1);
+        assertThat(advice.getAccess().get("MEMBER")).isEqualToIgnoringCase("idx_member_username");
+        assertThat(advice.isScan()).isFalse();
+        // 이미 인덱스를 타므로 권하지 않는다.
+        assertThat(advice.getRecommended()).isEmpty();
+    }
 }
@@ -0,0 +1,119 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.listener.SqlStatementCounter;
+import study.querydsl.repository.MemberJPARepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 캐시는 커밋된 변경으로 무효화되므로 테스트 트랜잭션으로 감싸지 않는다. 끝나면 직접 지운다.
+ * */
+@SpringBootTest
+public class MemberSearchResultCacheTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private MemberJPARepository memberJPARepository;
+
+    private TransactionTemplate transactionTemplate;
+    private Long teamAId;
+    private Long teamBId;
+
+    @BeforeEach
+    public void beforeEach() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("resultTeamA");
+            Team teamB = new Team("resultTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("resultMember1", 10, teamA));
+            em.persist(new Member("resultMember2", 20, teamB));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+        });
+    }
+
+    @AfterEach
+    public void afterEach() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'resultMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'resultTeam%'").executeUpdate();
+        });
+    }
+
+    @Test
+    @DisplayName("같은 조건은 두 번째부터 SQL 없이 답하고, search 와 findBySearchCondition 이 캐시를 함께 쓴다")
+    public void hitTest() {
+        MemberSearchCondition condition = condition("resultTeamA");
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("resultMember1");
+
+        long before = SqlStatementCounter.current();
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("resultMember1");
+        assertThat(memberJPARepository.findBySearchCondition(condition)).extracting("username").containsExactly("resultMember1");
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("조건에 맞는 변경이 커밋되면 그 항목만 지운다")
+    public void invalidateTest() {
+        MemberSearchCondition conditionA = condition("resultTeamA");
+        MemberSearchCondition conditionB = condition("resultTeamB");
+        memberRepository.search(conditionA);
+        memberRepository.search(conditionB);
+
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("resultMember3", 30, em.find(Team.class, teamAId))));
+
+        long before = SqlStatementCounter.current();
+        assertThat(memberRepository.search(conditionB)).extracting("username").containsExactly("resultMember2");
+        assertThat(SqlStatementCounter.current() - before).isEqualTo(0);
+
+        assertThat(memberRepository.search(conditionA)).extracting("username")
+                .containsExactlyInAnyOrder("resultMember1", "resultMember3");
+    }
+
+    @Test
+    @DisplayName("팀을 옮기면 이전 팀과 새 팀 조건 모두 지운다")
+    public void changeTeamTest() {
+        MemberSearchCondition conditionA = condition("resultTeamA");
+        MemberSearchCondition conditionB = condition("resultTeamB");
+        memberRepository.search(conditionA);
+        memberRepository.search(conditionB);
+
+        transactionTemplate.executeWithoutResult(status -> em
+                .createQuery("select m from Member m where m.username = 'resultMember1'", Member.class)
+                .getSingleResult()
+                .setTeam(em.getReference(Team.class, teamBId)));
+
+        assertThat(memberRepository.search(conditionA)).isEmpty();
+        assertThat(memberRepository.search(conditionB)).extracting("username")
+                .containsExactlyInAnyOrder("resultMember1", "resultMember2");
+    }
+
+    private static MemberSearchCondition condition(String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
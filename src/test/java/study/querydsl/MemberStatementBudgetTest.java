@@ -0,0 +1,72 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 저장소 조회가 실행하는 SQL 수를 잰다.
+ * 픽스처는 @BeforeEach 에서 flush / clear 해 두어 측정 구간에 insert 가 섞이지 않고, 팀도 영속성 컨텍스트에 남지 않는다.
+ * */
+@SpringBootTest
+@Transactional
+@ExtendWith(StatementBudgetExtension.class)
+public class MemberStatementBudgetTest {
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @BeforeEach
+    public void beforeEach() {
+        Team teamA = new Team("budgetTeamA");
+        Team teamB = new Team("budgetTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("budgetMember", 10, teamA));
+        em.persist(new Member("budgetMember", 20, teamA));
+        em.persist(new Member("budgetMember", 30, teamB));
+        em.persist(new Member("budgetMember", 40, teamB));
+
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    @DisplayName("검색은 팀 이름까지 한 번의 조회로 가져온다")
+    @StatementBudget(1)
+    public void searchTest() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("budgetTeamA");
+
+        List<MemberTeamDto> result = memberRepository.search(condition);
+        assertThat(result).extracting("teamName").containsOnly("budgetTeamA");
+    }
+
+    @Test
+    @DisplayName("엔티티로 조회하면 팀은 지연 로딩된다 (member 조회 1 + 팀마다 1)")
+    @StatementBudget(3)
+    public void lazyTeamTest() {
+        // 같은 팀의 member 는 영속성 컨텍스트의 팀을 함께 쓴다. member 마다 select 가 나가면 예산을 넘는다.
+        List<Member> members = memberRepository.findByUsername("budgetMember");
+
+        assertThat(members).hasSize(4);
+        assertThat(members).extracting(m -> m.getTeam().getName())
+                .containsExactlyInAnyOrder("budgetTeamA", "budgetTeamA", "budgetTeamB", "budgetTeamB");
+    }
+}
@@ -18,12 +18,15 @@ import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.domain.Member;
 import study.querydsl.domain.Team;
 import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberDtoProjection;
 import study.querydsl.dto.UserDto;
+import study.querydsl.dto.UserDtoProjection;
 
 import javax.persistence.EntityManager;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static study.querydsl.QMember.*;
 
 // 중급 문법 정리
@@ -141,6 +144,32 @@ public class QuerydslMiddle {
         }
     }
 
+    /**
+     * @GenerateProjection 으로 만든 클래스. 리플렉션 없이 setter 를 직접 호출한다. 필드 이름이 다르면 별칭을 붙인다.
+     * */
+    @Test
+    @DisplayName("dto 프로젝션 생성된 매퍼 기반")
+    public void dtoProjectionWithGeneratedMapper() {
+        List<MemberDto> members = queryFactory
+                .select(new MemberDtoProjection(member.username, member.age))
+                .from(member)
+                .where(member.username.eq("member1"))
+                .fetch();
+
+        List<UserDto> users = queryFactory
+                .select(new UserDtoProjection(member.username.as("title"), member.age.as("order")))
+                .from(member)
+                .where(member.username.eq("member1"))
+                .fetch();
+
+        assertThat(members).extracting("username", "age").contains(org.assertj.core.groups.Tuple.tuple("member1", 10));
+        assertThat(users).extracting("title", "order").contains(org.assertj.core.groups.Tuple.tuple("member1", 10));
+
+        // 필드 이름과 맞지 않는 인자는 만들 때 거절한다.
+        assertThatThrownBy(() -> new UserDtoProjection(member.username, member.age))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     /**
      * 서브쿼리가 있는 프로젝션
      */
@@ -9,6 +9,7 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,6 +30,7 @@ import static study.querydsl.QTeam.team;
 // 기초 문법 정리
 @SpringBootTest
 @Transactional
+@ExtendWith(StatementBudgetExtension.class)
 public class QuerydslTest {
 
     @Autowired
@@ -359,6 +361,7 @@ public class QuerydslTest {
 
     @Test
     @DisplayName("fetch join 을 사용하는 방법")
+    @StatementBudget(2)
     public void join_fetch() {
         em.flush();
         em.clear();
@@ -389,6 +392,21 @@ public class QuerydslTest {
         assertThat(loadedTeam).as("페치 조인 적용").isTrue();
     }
 
+    @Test
+    @DisplayName("fetch join 으로 N+1 방지하기")
+    @StatementBudget(1)
+    public void join_fetch_without_n_plus_one() {
+        // fetch join 을 빼면 팀마다 select 가 한 번씩 더 나가서 실패한다.
+        List<Member> members = queryFactory
+                .selectFrom(member)
+                .join(member.team, team).fetchJoin()
+                .fetch();
+
+        for (Member m : members) {
+            assertThat(m.getTeam().getName()).isNotNull();
+        }
+    }
+
 
     /**
      * 나이가 평균 이상인 사람 조회
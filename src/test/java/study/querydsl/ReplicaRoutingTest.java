@@ -0,0 +1,198 @@
+package study.querydsl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.config.ReplicaHeartbeat;
+import study.querydsl.config.ReplicaRouting;
+import study.querydsl.domain.Member;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJPARepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * replica 는 스키마만 복사한 별도 H2 다. replicate() 로 primary 의 행을 복사해 복제를 흉내 낸다.
+ * heartbeat 는 테스트가 직접 beat() 를 호출해서 진행한다.
+ * */
+@SpringBootTest(properties = {
+        "member.replica.enabled=true",
+        "member.replica.init-schema=true",
+        "member.replica.heartbeat-interval=1h"
+})
+public class ReplicaRoutingTest {
+
+    private static final String[] TABLES = {"team", "member", "replica_heartbeat"};
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private MemberJPARepository memberJPARepository;
+
+    @Autowired
+    private ReplicaRouting replicaRouting;
+
+    @Autowired
+    private ReplicaHeartbeat replicaHeartbeat;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void beforeEach() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("replicaMember1", 10)));
+    }
+
+    @AfterEach
+    public void afterEach() {
+        transactionTemplate.executeWithoutResult(status ->
+                em.createQuery("delete from Member m where m.username like 'replicaMember%'").executeUpdate());
+        catchUp();
+    }
+
+    @Test
+    @DisplayName("replica 가 마지막 커밋을 따라잡기 전에는 readOnly 조회도 primary 에서 읽는다")
+    public void laggingReplicaIsNotUsed() {
+        // 복제가 한 번도 되지 않았으므로 replica 를 쓰지 않는다.
+        assertThat(replicaRouting.isReplicaCaughtUp()).isFalse();
+        long replicaRoutes = replicaRouting.replicaRoutes();
+
+        List<MemberTeamDto> searched = memberRepository.search(usernameCondition("replicaMember1"));
+
+        assertThat(searched).extracting("username").containsExactly("replicaMember1");
+        assertThat(replicaRouting.replicaRoutes()).isEqualTo(replicaRoutes);
+    }
+
+    @Test
+    @DisplayName("커밋 뒤 밀린 replica 로 캐시가 낡지 않고, 따라잡은 뒤에는 replica 에서 새 값을 읽는다")
+    public void freshAfterCatchUp() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setGoe(10);
+        condition.setLoe(11);
+
+        catchUp();
+        assertThat(replicaRouting.isReplicaCaughtUp()).isTrue();
+        long replicaRoutes = replicaRouting.replicaRoutes();
+        // replica 에서 읽어 결과 캐시에 담긴다.
+        assertThat(memberRepository.search(condition)).extracting("username").contains("replicaMember1").doesNotContain("replicaMember2");
+        assertThat(memberJPARepository.findByUsernameQuerydsl("replicaMember2")).isEmpty();
+        assertThat(replicaRouting.replicaRoutes()).isGreaterThan(replicaRoutes);
+
+        // primary 에만 커밋한다. replica 는 밀려 있다.
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("replicaMember2", 11)));
+        assertThat(replicaRouting.isReplicaCaughtUp()).isFalse();
+
+        assertThat(memberRepository.search(condition)).extracting("username").contains("replicaMember1", "replicaMember2");
+        assertThat(memberJPARepository.findByUsernameQuerydsl("replicaMember2")).extracting("username").containsExactly("replicaMember2");
+
+        // 따라잡은 뒤에도 캐시에 낡은 값이 남아 있지 않다.
+        catchUp();
+        replicaRoutes = replicaRouting.replicaRoutes();
+        assertThat(memberJPARepository.findByUsernameQuerydsl("replicaMember1")).extracting("username").containsExactly("replicaMember1");
+        assertThat(replicaRouting.replicaRoutes()).isGreaterThan(replicaRoutes);
+        assertThat(memberRepository.search(condition)).extracting("username").contains("replicaMember1", "replicaMember2");
+        assertThat(memberJPARepository.findByUsernameQuerydsl("replicaMember2")).extracting("username").containsExactly("replicaMember2");
+    }
+
+    @Test
+    @DisplayName("쓰기 트랜잭션 안의 조회는 primary 에서 자기가 쓴 값을 읽는다")
+    public void readYourWritesInTransaction() {
+        catchUp();
+
+        List<MemberTeamDto> result = transactionTemplate.execute(status -> {
+            em.persist(new Member("replicaMember2", 20));
+
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setGoe(10);
+            condition.setLoe(20);
+            return memberRepository.search(condition);
+        });
+
+        assertThat(result).extracting("username").contains("replicaMember1", "replicaMember2");
+    }
+
+    @Test
+    @DisplayName("라우팅 횟수와 복제 지연을 메트릭으로 남긴다")
+    public void metricsTest() {
+        catchUp();
+
+        memberJPARepository.findAll();
+
+        assertThat(meterRegistry.get("member.datasource.route").tag("target", ReplicaRouting.REPLICA).functionCounter().count()).isPositive();
+        assertThat(meterRegistry.get("member.replica.lag").gauge().value()).isGreaterThanOrEqualTo(0);
+    }
+
+    /**
+     * primary 의 heartbeat 를 남기고 행을 전부 replica 로 복사한 뒤, replica 에서 heartbeat 를 읽는다.
+     * */
+    private void catchUp() {
+        sleepPastCurrentMillis();
+        replicaHeartbeat.beat();
+        replicate();
+        replicaHeartbeat.beat();
+    }
+
+    // replica 풀은 readOnly 커넥션을 주므로 복사하는 동안만 풀어 둔다.
+    private void replicate() {
+        JdbcTemplate primary = new JdbcTemplate(replicaRouting.primary());
+        new JdbcTemplate(replicaRouting.replica()).execute((Connection connection) -> {
+            connection.setReadOnly(false);
+            try {
+                JdbcTemplate replica = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                for (int i = TABLES.length - 1; i >= 0; i--) {
+                    replica.update("delete from " + TABLES[i]);
+                }
+                for (String table : TABLES) {
+                    for (Map<String, Object> row : primary.queryForList("select * from " + table)) {
+                        String placeholders = row.keySet().stream().map(column -> "?").collect(Collectors.joining(", "));
+                        replica.update("insert into " + table + " (" + String.join(", ", row.keySet()) + ") values (" + placeholders + ")",
+                                row.values().toArray());
+                    }
+                }
+            } finally {
+                connection.setReadOnly(true);
+            }
+            return null;
+        });
+    }
+
+    // heartbeat 는 마지막 커밋보다 늦은 시각이어야 한다.
+    private static void sleepPastCurrentMillis() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MemberSearchCondition usernameCondition(String username) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        return condition;
+    }
+}
@@ -0,0 +1,107 @@
+package study.querydsl;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.QMember.member;
+
+@SpringBootTest
+@Transactional
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    private JPAQueryFactory queryFactory;
+    private Cache cache;
+
+    private Long teamId;
+    private Long memberId;
+
+    @BeforeEach
+    public void beforeEach() {
+        queryFactory = new JPAQueryFactory(em);
+        cache = emf.getCache();
+
+        Team team = new Team("cacheTeam");
+        Member member = new Member("cacheMember", 10, team);
+        em.persist(team);
+        em.persist(member);
+        em.flush();
+        em.clear();
+
+        teamId = team.getId();
+        memberId = member.getId();
+
+        // DB 에서 읽을 때 2차 캐시에 올라간다.
+        em.find(Member.class, memberId);
+        em.find(Team.class, teamId);
+        em.clear();
+    }
+
+    @Test
+    @DisplayName("2차 캐시 적중")
+    public void secondLevelCacheHit() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        long hitCount = statistics.getSecondLevelCacheHitCount();
+
+        assertThat(cache.contains(Member.class, memberId)).isTrue();
+        assertThat(cache.contains(Team.class, teamId)).isTrue();
+
+        Member findMember = em.find(Member.class, memberId);
+        assertThat(findMember.getTeam().getName()).isEqualTo("cacheTeam");
+
+        // member, team 모두 캐시에서 읽는다.
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(hitCount + 2);
+    }
+
+    @Test
+    @DisplayName("벌크 update 는 member 리전을 비운다")
+    public void bulkUpdateEvictsRegion() {
+        assertThat(cache.contains(Member.class, memberId)).isTrue();
+
+        queryFactory
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.id.eq(memberId))
+                .execute();
+
+        assertThat(cache.contains(Member.class, memberId)).isFalse();
+        // 다른 테이블의 리전은 그대로 둔다.
+        assertThat(cache.contains(Team.class, teamId)).isTrue();
+
+        Member findMember = em.find(Member.class, memberId);
+        assertThat(findMember.getAge()).isEqualTo(11);
+    }
+
+    @Test
+    @DisplayName("벌크 delete 는 member 리전을 비운다")
+    public void bulkDeleteEvictsRegion() {
+        assertThat(cache.contains(Member.class, memberId)).isTrue();
+
+        queryFactory
+                .delete(member)
+                .where(member.id.eq(memberId))
+                .execute();
+
+        assertThat(cache.contains(Member.class, memberId)).isFalse();
+        assertThat(em.find(Member.class, memberId)).isNull();
+    }
+}
@@ -0,0 +1,16 @@
+package study.querydsl;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 테스트 메서드 하나가 실행해도 되는 SQL 수. 클래스에 붙이면 모든 테스트의 기본값이 된다.
+ * StatementBudgetExtension 과 함께 사용한다.
+ * */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+    int value();
+}
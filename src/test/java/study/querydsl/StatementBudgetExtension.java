@@ -0,0 +1,46 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import study.querydsl.listener.SqlStatementCounter;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @BeforeEach 이후 테스트 본문에서 실행된 SQL 수가 @StatementBudget 을 넘으면 실패시킨다.
+ * */
+public class StatementBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(StatementBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), SqlStatementCounter.current());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        Optional<StatementBudget> budget = budgetOf(context);
+        if (!budget.isPresent()) {
+            return;
+        }
+
+        long start = context.getStore(NAMESPACE).remove(context.getUniqueId(), Long.class);
+        long executed = SqlStatementCounter.current() - start;
+
+        assertThat(executed)
+                .as("%s 에서 실행한 SQL 수 (N+1 확인)", context.getDisplayName())
+                .isLessThanOrEqualTo(budget.get().value());
+    }
+
+    private static Optional<StatementBudget> budgetOf(ExtensionContext context) {
+        Optional<StatementBudget> onMethod = context.getTestMethod().map(m -> m.getAnnotation(StatementBudget.class));
+        if (onMethod.isPresent()) {
+            return onMethod;
+        }
+        return context.getTestClass().map(c -> c.getAnnotation(StatementBudget.class));
+    }
+}
@@ -0,0 +1,159 @@
+package study.querydsl;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.domain.Member;
+import study.querydsl.domain.Team;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.listener.ChangeType;
+import study.querydsl.listener.MemberChangedEvent;
+import study.querydsl.listener.MemberSnapshot;
+import study.querydsl.repository.TeamStatsRepository;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.QMember.member;
+import static study.querydsl.QTeam.team;
+
+/**
+ * 집계는 커밋된 변경만 반영하므로 테스트 트랜잭션으로 감싸지 않는다. 끝나면 직접 지운다.
+ * */
+@SpringBootTest
+public class TeamStatsTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private TransactionTemplate transactionTemplate;
+    private Long member1Id;
+    private Long teamBId;
+
+    @BeforeEach
+    public void beforeEach() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("statsTeamA");
+            Team teamB = new Team("statsTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("statsMember1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("statsMember2", 20, teamA));
+            em.persist(new Member("statsMember3", 30, teamB));
+            em.persist(new Member("statsMember4", 40, teamB));
+            member1Id = member1.getId();
+            teamBId = teamB.getId();
+        });
+    }
+
+    @AfterEach
+    public void afterEach() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'statsMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'statsTeam%'").executeUpdate();
+        });
+    }
+
+    @Test
+    @DisplayName("group by 집계와 같은 값을 돌려준다")
+    public void statsTest() {
+        Tuple expected = transactionTemplate.execute(status -> new JPAQueryFactory(em)
+                .select(member.count(), member.age.sum(), member.age.avg(), member.age.max(), member.age.min())
+                .from(member)
+                .join(member.team, team)
+                .where(team.name.eq("statsTeamB"))
+                .fetchOne());
+
+        TeamStatsDto stats = teamStatsRepository.findByTeamName("statsTeamB");
+        assertThat(stats.getCount()).isEqualTo(expected.get(member.count()));
+        assertThat(stats.getSum()).isEqualTo((long) expected.get(member.age.sum()));
+        assertThat(stats.getAvg()).isEqualTo(expected.get(member.age.avg()));
+        assertThat(stats.getMax()).isEqualTo(expected.get(member.age.max()));
+        assertThat(stats.getMin()).isEqualTo(expected.get(member.age.min()));
+    }
+
+    @Test
+    @DisplayName("팀 이동, 나이 변경, 삭제가 한 건씩 반영된다")
+    public void entityChangeTest() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member1 = em.find(Member.class, member1Id);
+            member1.setTeam(em.getReference(Team.class, teamBId));
+            member1.setAge(50);
+        });
+
+        assertThat(teamStatsRepository.findByTeamName("statsTeamA"))
+                .isEqualTo(new TeamStatsDto("statsTeamA", 1, 20, 20.0, 20, 20));
+        assertThat(teamStatsRepository.findByTeamName("statsTeamB"))
+                .isEqualTo(new TeamStatsDto("statsTeamB", 3, 120, 40.0, 50, 30));
+
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, member1Id)));
+
+        assertThat(teamStatsRepository.findByTeamName("statsTeamB"))
+                .isEqualTo(new TeamStatsDto("statsTeamB", 2, 70, 35.0, 40, 30));
+    }
+
+    @Test
+    @DisplayName("벌크 연산 뒤에는 다시 집계한다")
+    public void bulkChangeTest() {
+        transactionTemplate.executeWithoutResult(status -> em
+                .createQuery("update Member m set m.age = m.age + 1 where m.username like 'statsMember%'")
+                .executeUpdate());
+
+        assertThat(teamStatsRepository.findByTeamName("statsTeamA"))
+                .isEqualTo(new TeamStatsDto("statsTeamA", 2, 32, 16.0, 21, 11));
+    }
+
+    @Test
+    @DisplayName("다시 만드는 동안 들어온 변경은 스냅샷이 이미 본 것만 빼고 한 번씩 반영한다")
+    public void rebuildReplayTest() {
+        AtomicBoolean committed = new AtomicBoolean();
+        TeamStatsRepository[] repository = new TeamStatsRepository[1];
+        JdbcTemplate racingJdbcTemplate = new JdbcTemplate(dataSource) {
+            @Override
+            public <T> T execute(ConnectionCallback<T> action) {
+                if (committed.compareAndSet(false, true)) {
+                    // 스냅샷 전에 커밋되었지만 이벤트는 다시 만드는 중에 도착한다. group by 결과에 이미 들어 있다.
+                    Long memberId = transactionTemplate.execute(status -> {
+                        Member member5 = new Member("statsMember5", 50, em.getReference(Team.class, teamBId));
+                        em.persist(member5);
+                        return member5.getId();
+                    });
+                    repository[0].onMemberChanged(new MemberChangedEvent(ChangeType.INSERT, memberId, null,
+                            new MemberSnapshot("statsMember5", 50, teamBId)));
+                    // 스냅샷 뒤에 커밋된 변경. group by 결과에 없다.
+                    repository[0].onMemberChanged(new MemberChangedEvent(ChangeType.INSERT, Long.MAX_VALUE, null,
+                            new MemberSnapshot("statsMember6", 60, teamBId)));
+                }
+                return super.execute(action);
+            }
+        };
+        repository[0] = new TeamStatsRepository(racingJdbcTemplate);
+
+        repository[0].rebuild();
+
+        assertThat(repository[0].findByTeamName("statsTeamB"))
+                .isEqualTo(new TeamStatsDto("statsTeamB", 4, 180, 45.0, 60, 30));
+    }
+}